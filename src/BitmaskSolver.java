@@ -0,0 +1,842 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+// Backtracking solver that works for any GridSpec.
+// Each unit keeps a bitmask of the symbols it already holds, so the candidates of a
+// cell are the full mask minus the OR of its units. Every node first places naked and hidden
+// singles (a symbol that fits in only one cell of a unit) and rules out candidates with
+// all-different filtering and locked candidates until nothing changes, then branches on the
+// cell with the fewest candidates or the symbol with the fewest places in a unit.
+// Killer cages are additionally pruned with the smallest/largest sums the
+// remaining cage cells could still make.
+public class BitmaskSolver {
+    private static final long RESTART_NODES = 2; // first node limit per cell before restarting
+    private static final long RESTART_SEED = 0x5EED;
+    private static final long TRACE_NODES = 50_000; // trace() gives up after this many nodes
+
+    // Told about every value the search places and every value it takes back
+    public interface StepListener {
+        void placed(int cell, int value);
+
+        void removed(int cell);
+    }
+
+    private final GridSpec spec;
+    private final int[] board;
+    private final long[] used;      // symbols already placed in each unit
+    private final int[] cageTotal;  // sum of the values placed in each cage
+    private final int[] cageEmpty;  // empty cells left in each cage
+    private final long[] cand;      // candidates of each empty cell at the current node
+    private final long[] banned;    // candidates ruled out by locked candidates, taken back on backtrack
+    private final int[] trailCell;  // bans made on the current path, in order
+    private final long[] trailMask;
+    private int trailSize;
+    private final int[] forcedCell; // singles placed by the nodes on the current path
+    // Scratch space of pruneUnits, indexed by position among the unit's empty cells or by value - 1
+    private final int[] unitCells;
+    private final int[] valueOwner;
+    private final int[] matchedValue;
+    private final long[] reach;
+    private long visited;
+    private int forcedSize;
+    // Pairs of full units sharing two or more cells (a box and a row, a region and a column, ...):
+    // lockInside[p] = A and B, lockRest[p] = A without B, lockOther[p] = B without A
+    private final int[][] lockInside;
+    private final int[][] lockRest;
+    private final int[][] lockOther;
+    private final boolean filter;   // pruneUnits and lockCandidates only pay off from 16x16 up
+
+    private Random random;          // null for a deterministic search
+    private long nodeLimit;
+    private long deadline;          // System.nanoTime() value, only used if hasDeadline
+    private boolean hasDeadline;
+    private CancellationToken token;
+    private boolean cancelled;
+    private long nodes;
+    private long backtracks;        // values taken back because their subtree held no solution
+    private long propagations;      // forced placements (naked or hidden singles)
+    private boolean aborted;
+    private int solutionLimit;
+    private int solutionCount;
+    private int[] firstSolution;
+    private StepListener listener;  // only set during trace()
+    // Results of the last scanCells and scanUnits
+    private int bestCell;
+    private long bestMask;
+    private int bestCount;
+    private int placeUnit;
+    private long placeBit;
+    private int placeCount;
+
+    public BitmaskSolver(GridSpec spec) {
+        this.spec = spec;
+        this.board = new int[spec.cellCount];
+        this.used = new long[spec.units.length];
+        this.cageTotal = new int[spec.cages.length];
+        this.cageEmpty = new int[spec.cages.length];
+        this.cand = new long[spec.cellCount];
+        this.banned = new long[spec.cellCount];
+        this.forcedCell = new int[spec.cellCount];
+        this.unitCells = new int[spec.side];
+        this.valueOwner = new int[spec.side];
+        this.matchedValue = new int[spec.side];
+        this.reach = new long[spec.side];
+        this.trailCell = new int[spec.cellCount * spec.side];
+        this.trailMask = new long[spec.cellCount * spec.side];
+        this.filter = spec.side >= 16;
+
+        List<int[][]> pairs = new ArrayList<>();
+        boolean[] inA = new boolean[spec.cellCount];
+        for (int a = 0; a < spec.fullUnits; a++) {
+            for (int cell : spec.units[a]) {
+                inA[cell] = true;
+            }
+            for (int b = 0; b < spec.fullUnits; b++) {
+                int shared = 0;
+                for (int cell : spec.units[b]) {
+                    if (inA[cell]) {
+                        shared++;
+                    }
+                }
+                if (a == b || shared < 2) {
+                    continue;
+                }
+                int[] inside = new int[shared];
+                int[] other = new int[spec.side - shared];
+                int i = 0;
+                int o = 0;
+                for (int cell : spec.units[b]) {
+                    if (inA[cell]) {
+                        inside[i++] = cell;
+                    } else {
+                        other[o++] = cell;
+                    }
+                }
+                int[] rest = new int[spec.side - shared];
+                int r = 0;
+                for (int cell : spec.units[a]) {
+                    if (!inUnit(cell, b)) {
+                        rest[r++] = cell;
+                    }
+                }
+                pairs.add(new int[][] {inside, rest, other});
+            }
+            for (int cell : spec.units[a]) {
+                inA[cell] = false;
+            }
+        }
+        this.lockInside = new int[pairs.size()][];
+        this.lockRest = new int[pairs.size()][];
+        this.lockOther = new int[pairs.size()][];
+        for (int p = 0; p < pairs.size(); p++) {
+            lockInside[p] = pairs.get(p)[0];
+            lockRest[p] = pairs.get(p)[1];
+            lockOther[p] = pairs.get(p)[2];
+        }
+    }
+
+    private boolean inUnit(int cell, int unit) {
+        for (int u : spec.cellUnits[cell]) {
+            if (u == unit) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Solves the board in place. Returns false (and leaves the board untouched) if there is no solution.
+    // Sparse boards can send a depth-first search down a huge fruitless subtree, so the search is
+    // restarted with a shuffled value order and a slowly growing node limit whenever a limit runs out.
+    public boolean solve(int[] cells) {
+        return solve(cells, Long.MAX_VALUE);
+    }
+
+    // Same search as solve(int[]), but gives up after maxNodes nodes over all restarts and returns
+    // false with aborted() set. The restarts use a fixed seed, so a board that is solved within
+    // maxNodes here is always solved by solve(int[]) in the same number of nodes.
+    public boolean solve(int[] cells, long maxNodes) {
+        SudokuEvents.SolveEvent event = new SudokuEvents.SolveEvent();
+        event.begin();
+        long start = System.nanoTime();
+
+        int found = searchWithRestarts(cells, maxNodes, null);
+        if (found > 0) {
+            System.arraycopy(firstSolution, 0, cells, 0, cells.length);
+        }
+
+        Metrics.SOLVE_LATENCY.recordSince(start);
+        commit(event, found);
+        return found > 0;
+    }
+
+    // Counts solutions, stopping as soon as limit of them have been found
+    public int countSolutions(int[] cells, int limit) {
+        SudokuEvents.SolveEvent event = new SudokuEvents.SolveEvent();
+        event.begin();
+        long start = System.nanoTime();
+        int found = search(cells, limit, Long.MAX_VALUE, null, 0, false, null);
+        Metrics.SOLVE_LATENCY.recordSince(start);
+        commit(event, found);
+        return found;
+    }
+
+    // Budgeted solve for callers that must not hang on a bad board. Searches for up to two
+    // solutions so the status tells a unique solution from several, and stops early when the
+    // node budget, the deadline or the cancellation token says so. The board is not modified.
+    // A search that stops early returns no solution, even if it had found one: without the
+    // count it is not known to be the only one.
+    public SolveResult solve(int[] cells, SolveBudget budget) {
+        SudokuEvents.SolveEvent event = new SudokuEvents.SolveEvent();
+        event.begin();
+        long start = System.nanoTime();
+        boolean timed = budget.timeoutNanos != Long.MAX_VALUE;
+
+        search(cells, 2, budget.maxNodes, null, timed ? start + budget.timeoutNanos : 0, timed, budget.token);
+
+        SolveResult.Status status;
+        if (aborted) {
+            status = cancelled ? SolveResult.Status.CANCELLED : SolveResult.Status.BUDGET_EXCEEDED;
+        } else if (solutionCount == 0) {
+            status = SolveResult.Status.UNSOLVABLE;
+        } else if (solutionCount == 1) {
+            status = SolveResult.Status.SOLVED;
+        } else {
+            status = SolveResult.Status.MULTIPLE;
+        }
+        long elapsed = System.nanoTime() - start;
+        Metrics.SOLVE_LATENCY.record(elapsed);
+        commit(event, solutionCount);
+        return new SolveResult(status, aborted ? null : firstSolution, nodes, backtracks, propagations, elapsed);
+    }
+
+    // The search of solve(int[]) on the calling thread, reporting each step to the listener.
+    // Gives up after TRACE_NODES nodes with BUDGET_EXCEEDED. Values placed by a run that is
+    // restarted or given up are reported as removed again, so the placements minus the removals
+    // always give the board as the search left it: the givens, or the givens and the solution.
+    public SolveResult trace(int[] cells, CancellationToken token, StepListener listener) {
+        long start = System.nanoTime();
+        this.listener = listener;
+        try {
+            searchWithRestarts(cells, TRACE_NODES, token);
+        } finally {
+            this.listener = null;
+        }
+        SolveResult.Status status;
+        if (aborted) {
+            status = cancelled ? SolveResult.Status.CANCELLED : SolveResult.Status.BUDGET_EXCEEDED;
+        } else if (solutionCount == 0) {
+            status = SolveResult.Status.UNSOLVABLE;
+        } else {
+            status = SolveResult.Status.SOLVED;
+        }
+        return new SolveResult(status, aborted ? null : firstSolution, nodes, backtracks, propagations,
+                System.nanoTime() - start);
+    }
+
+    // True if the first node of solve(int[]) fills the empty `cell` before it branches. The fixed
+    // point of that propagation is the same with or without the cell's value as a given, so
+    // removing such a given leaves the search of solve(int[]) exactly as it was.
+    public boolean propagates(int[] cells, int cell) {
+        if (cells.length != spec.cellCount) {
+            throw new IllegalArgumentException("Expected " + spec.cellCount + " cells but got " + cells.length);
+        }
+        random = null;
+        return load(cells) && propagate() && board[cell] != 0;
+    }
+
+    // Fills the board in place with a random solution that respects the givens.
+    // Gives up (returns false) after nodeLimit search nodes so callers can restart.
+    public boolean fillRandom(int[] cells, Random random, long nodeLimit) {
+        if (search(cells, 1, nodeLimit, random, 0, false, null) == 0) {
+            return false;
+        }
+        System.arraycopy(firstSolution, 0, cells, 0, cells.length);
+        return true;
+    }
+
+    // Number of search nodes visited by the last call (all restarts included)
+    public long nodes() {
+        return nodes;
+    }
+
+    // Values taken back by the last call because their subtree held no solution
+    public long backtracks() {
+        return backtracks;
+    }
+
+    // Placements the last call made without branching (naked and hidden singles)
+    public long propagations() {
+        return propagations;
+    }
+
+    // True if the last call stopped because it ran out of nodes
+    public boolean aborted() {
+        return aborted;
+    }
+
+    // Runs of search() for one solution, each with a larger node limit and a new shuffle, until one
+    // finishes, the token is cancelled or maxNodes nodes have been used. The counters cover all runs.
+    private int searchWithRestarts(int[] cells, long maxNodes, CancellationToken token) {
+        Random restarts = null;
+        long limit = spec.cellCount * RESTART_NODES;
+        long totalNodes = 0;
+        long totalBacktracks = 0;
+        long totalPropagations = 0;
+        int found;
+        while (true) {
+            found = search(cells, 1, Math.min(limit, maxNodes - totalNodes), restarts, 0, false, token);
+            totalNodes += nodes;
+            totalBacktracks += backtracks;
+            totalPropagations += propagations;
+            if (!aborted || cancelled || totalNodes >= maxNodes) {
+                break;
+            }
+            if (restarts == null) {
+                restarts = new Random(RESTART_SEED);
+            }
+            limit = limit > Long.MAX_VALUE / 2 ? Long.MAX_VALUE : limit + limit / 4;
+        }
+        nodes = totalNodes;
+        backtracks = totalBacktracks;
+        propagations = totalPropagations;
+        return found;
+    }
+
+    private int search(int[] cells, int limit, long nodeLimit, Random random,
+                       long deadline, boolean hasDeadline, CancellationToken token) {
+        if (cells.length != spec.cellCount) {
+            throw new IllegalArgumentException("Expected " + spec.cellCount + " cells but got " + cells.length);
+        }
+        this.random = random;
+        this.nodeLimit = nodeLimit;
+        this.deadline = deadline;
+        this.hasDeadline = hasDeadline;
+        this.token = token;
+        this.cancelled = false;
+        this.nodes = 0;
+        this.backtracks = 0;
+        this.propagations = 0;
+        this.aborted = false;
+        this.solutionLimit = limit;
+        this.solutionCount = 0;
+        this.firstSolution = null;
+
+        if (load(cells)) {
+            search();
+        }
+
+        // Published once per call so the search loop itself only touches plain fields
+        Metrics.SOLVER_CALLS.increment();
+        Metrics.SOLVER_NODES.add(nodes);
+        Metrics.SOLVER_BACKTRACKS.add(backtracks);
+        Metrics.SOLVER_PROPAGATIONS.add(propagations);
+        return aborted ? 0 : solutionCount;
+    }
+
+    private void commit(SudokuEvents.SolveEvent event, int solutions) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.variant = spec.variant.label;
+            event.boardSize = spec.side;
+            event.solutions = solutions;
+            event.nodes = nodes;
+            event.backtracks = backtracks;
+            event.propagations = propagations;
+            event.commit();
+        }
+    }
+
+    // Copies the givens into the working board, returns false if two givens clash
+    private boolean load(int[] cells) {
+        Arrays.fill(used, 0L);
+        Arrays.fill(banned, 0L);
+        trailSize = 0;
+        forcedSize = 0;
+        for (int k = 0; k < cageTotal.length; k++) {
+            cageTotal[k] = 0;
+            cageEmpty[k] = spec.cages[k].length;
+        }
+        for (int cell = 0; cell < cells.length; cell++) {
+            int v = cells[cell];
+            board[cell] = 0;
+            if (v == 0) {
+                continue;
+            }
+            if (v < 0 || v > spec.side) {
+                return false;
+            }
+            long bit = 1L << (v - 1);
+            for (int u : spec.cellUnits[cell]) {
+                if ((used[u] & bit) != 0) {
+                    return false;
+                }
+            }
+            place(cell, v);
+        }
+        for (int k = 0; k < cageTotal.length; k++) {
+            if (cageTotal[k] > spec.cageSums[k] || (cageEmpty[k] == 0 && cageTotal[k] != spec.cageSums[k])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Returns true when the search should stop (enough solutions or out of nodes).
+    // What the node places and rules out before branching is taken back on the way out.
+    private boolean search() {
+        SolveResult.Status stopped = SolveBudget.stopReason(++nodes, nodeLimit, deadline, hasDeadline, token);
+        if (stopped != null) {
+            aborted = true;
+            cancelled = stopped == SolveResult.Status.CANCELLED;
+            return true;
+        }
+        int forcedMark = forcedSize;
+        int banMark = trailSize;
+        boolean stop = expand();
+        while (forcedSize > forcedMark) {
+            int cell = forcedCell[--forcedSize];
+            remove(cell, board[cell]);
+            if (listener != null && (!stop || aborted)) {
+                listener.removed(cell);
+            }
+        }
+        while (trailSize > banMark) {
+            trailSize--;
+            banned[trailCell[trailSize]] &= ~trailMask[trailSize];
+        }
+        return stop;
+    }
+
+    // Body of a search node: propagate, then branch on whichever is smaller, the candidates of
+    // the most constrained cell or the places left for a symbol in a unit.
+    private boolean expand() {
+        if (!propagate()) {
+            return false;
+        }
+        if (bestCell == -1) {
+            // No empty cells left: the board is a solution
+            solutionCount++;
+            if (firstSolution == null) {
+                firstSolution = board.clone();
+            }
+            return solutionCount >= solutionLimit;
+        }
+        // The branch reads the scan results before the next node overwrites them
+        if (placeUnit != -1) {
+            return tryPlaces(placeUnit, placeBit, placeCount);
+        }
+        return tryCell(bestCell, bestMask, bestCount);
+    }
+
+    // Places naked and hidden singles and rules out candidates until nothing changes, so a node
+    // costs a few scans instead of one node per forced cell. Returns false at a dead end; otherwise
+    // the scan results describe the board, with bestCell -1 if it is full.
+    private boolean propagate() {
+        while (true) {
+            int found = scanCells();
+            if (found < 0) {
+                return false;
+            }
+            if (found > 0) {
+                continue; // cells scanned before a placement may have lost candidates
+            }
+            if (bestCell == -1) {
+                return true;
+            }
+            found = scanUnits();
+            if (found < 0) {
+                return false;
+            }
+            if (found > 0) {
+                continue;
+            }
+            if (filter) {
+                found = pruneUnits();
+                if (found < 0) {
+                    return false;
+                }
+                if (found > 0 || lockCandidates()) {
+                    continue;
+                }
+            }
+            return true;
+        }
+    }
+
+    // Places the naked singles and fills cand[] for the other empty cells, keeping the one with
+    // the fewest candidates in bestCell (-1 if the board is full).
+    // Returns -1 at a dead end, 1 if anything was placed, otherwise 0.
+    private int scanCells() {
+        bestCell = -1;
+        bestMask = 0;
+        bestCount = Integer.MAX_VALUE;
+        int changed = 0;
+        // Restarts start the scan at a random cell, which varies the equally constrained cell chosen
+        int offset = random == null ? 0 : random.nextInt(board.length);
+        for (int i = 0; i < board.length; i++) {
+            int cell = i < board.length - offset ? i + offset : i + offset - board.length;
+            if (board[cell] != 0) {
+                continue;
+            }
+            long mask = candidates(cell);
+            int count = Long.bitCount(mask);
+            if (count == 0) {
+                return -1;
+            }
+            if (count == 1) {
+                force(cell, Long.numberOfTrailingZeros(mask) + 1);
+                changed = 1;
+                continue;
+            }
+            cand[cell] = mask;
+            if (count < bestCount) {
+                bestCell = cell;
+                bestMask = mask;
+                bestCount = count;
+            }
+        }
+        return changed;
+    }
+
+    // Finds the symbols of each unit with one, two, three or more places left, one bit per
+    // symbol, and places the hidden singles of the first unit that has any. Candidates of cells
+    // scanned before a hidden single was placed can be stale, but only ever too large, so every
+    // single is checked again. Otherwise keeps a symbol with two or three places, if fewer than
+    // bestCount, in placeUnit (-1 if none). Returns -1 at a dead end, 1 if anything was placed,
+    // otherwise 0.
+    private int scanUnits() {
+        placeUnit = -1;
+        placeBit = 0;
+        placeCount = bestCount;
+        int placeTies = 0;
+        for (int u = 0; u < spec.fullUnits; u++) {
+            long once = 0;
+            long twice = 0;
+            long thrice = 0;
+            long more = 0;
+            for (int cell : spec.units[u]) {
+                if (board[cell] == 0) {
+                    long mask = cand[cell];
+                    more |= thrice & mask;
+                    thrice |= twice & mask;
+                    twice |= once & mask;
+                    once |= mask;
+                }
+            }
+            long missing = spec.fullMask & ~used[u];
+            if ((missing & ~once) != 0) {
+                return -1; // a symbol has nowhere left to go in this unit
+            }
+            long single = once & ~twice & missing;
+            if (single != 0) {
+                do {
+                    long bit = single & -single;
+                    single ^= bit;
+                    int cell = findCell(u, bit, -1);
+                    if (cell == -1 || (candidates(cell) & bit) == 0) {
+                        return -1;
+                    }
+                    force(cell, Long.numberOfTrailingZeros(bit) + 1);
+                } while (single != 0);
+                return 1; // back to the cells, which are cheaper to scan than the units
+            }
+            if (placeCount == 2 && random == null) {
+                continue; // nothing left to beat, and ties only matter when restarting
+            }
+            long exact = twice & ~thrice & missing;
+            int count = 2;
+            if (exact == 0 && placeCount > 3) {
+                exact = thrice & ~more & missing;
+                count = 3;
+            }
+            if (exact == 0) {
+                continue;
+            }
+            if (count < placeCount) {
+                placeUnit = u;
+                placeBit = exact & -exact;
+                placeCount = count;
+                placeTies = 1;
+            } else if (random != null && count < bestCount && random.nextInt(++placeTies) == 0) {
+                placeUnit = u;
+                placeBit = exact & -exact;
+            }
+        }
+        return 0;
+    }
+
+    // Places a value the current node proves, it is taken back when the node returns
+    private void force(int cell, int value) {
+        place(cell, value);
+        forcedCell[forcedSize++] = cell;
+        propagations++;
+        if (listener != null) {
+            listener.placed(cell, value);
+        }
+    }
+
+    // Branches on the candidates of one cell, in a shuffled order when restarting
+    private boolean tryCell(int cell, long mask, int count) {
+        if (random == null) {
+            while (mask != 0) {
+                long bit = mask & -mask;
+                mask ^= bit;
+                if (tryValue(cell, Long.numberOfTrailingZeros(bit) + 1)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        int[] values = new int[count];
+        for (int i = 0; i < count; i++) {
+            long bit = mask & -mask;
+            mask ^= bit;
+            values[i] = Long.numberOfTrailingZeros(bit) + 1;
+        }
+        for (int i = count - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int tmp = values[i];
+            values[i] = values[j];
+            values[j] = tmp;
+        }
+        for (int v : values) {
+            if (tryValue(cell, v)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Filtering for "all different" on every full unit (Regin): a value stays a candidate of a
+    // cell only if some way of giving each missing value of the unit its own empty cell gives it
+    // to that cell. A perfect matching of cells to values is found first. Cell i can switch to the
+    // value matched to cell j exactly when i and j lie on a common cycle of the graph with an
+    // edge i -> j whenever i can take j's value, so the other values are ruled out.
+    // Returns -1 if a unit has no perfect matching, 1 if anything was ruled out, otherwise 0.
+    private int pruneUnits() {
+        int result = 0;
+        for (int u = 0; u < spec.fullUnits; u++) {
+            int n = 0;
+            for (int cell : spec.units[u]) {
+                if (board[cell] == 0) {
+                    unitCells[n++] = cell;
+                }
+            }
+            if (n < 2) {
+                continue;
+            }
+            Arrays.fill(valueOwner, -1);
+            for (int i = 0; i < n; i++) {
+                visited = 0;
+                if (!augment(i)) {
+                    return -1;
+                }
+            }
+            for (int i = 0; i < n; i++) {
+                long edges = 1L << i;
+                long values = cand[unitCells[i]];
+                while (values != 0) {
+                    long bit = values & -values;
+                    values ^= bit;
+                    edges |= 1L << valueOwner[Long.numberOfTrailingZeros(bit)];
+                }
+                reach[i] = edges;
+            }
+            // Transitive closure, one row per long
+            for (int k = 0; k < n; k++) {
+                long via = reach[k];
+                for (int i = 0; i < n; i++) {
+                    if ((reach[i] & (1L << k)) != 0) {
+                        reach[i] |= via;
+                    }
+                }
+            }
+            for (int i = 0; i < n; i++) {
+                long allowed = 0;
+                long others = reach[i];
+                while (others != 0) {
+                    long bit = others & -others;
+                    others ^= bit;
+                    int j = Long.numberOfTrailingZeros(bit);
+                    if ((reach[j] & (1L << i)) != 0) {
+                        allowed |= 1L << matchedValue[j];
+                    }
+                }
+                int cell = unitCells[i];
+                long ruledOut = cand[cell] & ~allowed;
+                if (ruledOut != 0) {
+                    ban(cell, ruledOut);
+                    result = 1;
+                }
+            }
+        }
+        return result;
+    }
+
+    // Kuhn's augmenting path from unit cell i, over values not visited yet
+    private boolean augment(int i) {
+        long options = cand[unitCells[i]] & ~visited;
+        while (options != 0) {
+            long bit = options & -options;
+            options ^= bit;
+            visited |= bit;
+            int value = Long.numberOfTrailingZeros(bit);
+            int owner = valueOwner[value];
+            if (owner < 0 || augment(owner)) {
+                valueOwner[value] = i;
+                matchedValue[i] = value;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void ban(int cell, long bits) {
+        banned[cell] |= bits;
+        cand[cell] &= ~bits;
+        trailCell[trailSize] = cell;
+        trailMask[trailSize++] = bits;
+    }
+
+    // Locked candidates: a symbol whose places in unit A all lie in the part A shares with unit B
+    // must go there, so it is ruled out in the rest of B. Returns true if anything was ruled out.
+    private boolean lockCandidates() {
+        boolean changed = false;
+        for (int p = 0; p < lockInside.length; p++) {
+            long inside = 0;
+            for (int cell : lockInside[p]) {
+                if (board[cell] == 0) {
+                    inside |= cand[cell];
+                }
+            }
+            if (inside == 0) {
+                continue;
+            }
+            long outside = 0;
+            for (int cell : lockRest[p]) {
+                if (board[cell] == 0) {
+                    outside |= cand[cell];
+                }
+            }
+            long locked = inside & ~outside;
+            if (locked == 0) {
+                continue;
+            }
+            for (int cell : lockOther[p]) {
+                long bits = cand[cell] & locked;
+                if (board[cell] == 0 && bits != 0) {
+                    ban(cell, bits);
+                    changed = true;
+                }
+            }
+        }
+        return changed;
+    }
+
+    // Branches on the cells of the unit where the symbol can still go
+    private boolean tryPlaces(int unit, long bit, int count) {
+        int value = Long.numberOfTrailingZeros(bit) + 1;
+        int[] places = new int[count];
+        int n = 0;
+        for (int cell : spec.units[unit]) {
+            if (board[cell] == 0 && (cand[cell] & bit) != 0) {
+                places[n++] = cell;
+            }
+        }
+        if (random != null) {
+            for (int i = n - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                int tmp = places[i];
+                places[i] = places[j];
+                places[j] = tmp;
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            if (tryValue(places[i], value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // First empty cell of the unit after skip whose candidates contain bit
+    private int findCell(int unit, long bit, int skip) {
+        for (int cell : spec.units[unit]) {
+            if (cell != skip && board[cell] == 0 && (cand[cell] & bit) != 0) {
+                return cell;
+            }
+        }
+        return -1;
+    }
+
+    private boolean tryValue(int cell, int value) {
+        int solutionsBefore = solutionCount;
+        place(cell, value);
+        if (listener != null) {
+            listener.placed(cell, value);
+        }
+        boolean stop = search();
+        remove(cell, value);
+        if (solutionCount == solutionsBefore) {
+            backtracks++;
+        }
+        if (listener != null && (!stop || aborted)) {
+            listener.removed(cell);
+        }
+        return stop;
+    }
+
+    private long candidates(int cell) {
+        long mask = spec.fullMask & ~banned[cell];
+        for (int u : spec.cellUnits[cell]) {
+            mask &= ~used[u];
+        }
+        int cage = spec.cageOf[cell];
+        if (cage >= 0 && mask != 0) {
+            mask &= cageRange(cage);
+        }
+        return mask;
+    }
+
+    // Values a cell of the cage can still take so that the other empty cells can reach the target sum
+    private long cageRange(int cage) {
+        int remaining = spec.cageSums[cage] - cageTotal[cage];
+        int others = cageEmpty[cage] - 1;
+        int minOthers = others * (others + 1) / 2;
+        int maxOthers = others * spec.side - others * (others - 1) / 2;
+        int low = Math.max(1, remaining - maxOthers);
+        int high = Math.min(spec.side, remaining - minOthers);
+        if (low > high) {
+            return 0;
+        }
+        return ((1L << high) - 1) & ~((1L << (low - 1)) - 1);
+    }
+
+    private void place(int cell, int value) {
+        board[cell] = value;
+        long bit = 1L << (value - 1);
+        for (int u : spec.cellUnits[cell]) {
+            used[u] |= bit;
+        }
+        int cage = spec.cageOf[cell];
+        if (cage >= 0) {
+            cageTotal[cage] += value;
+            cageEmpty[cage]--;
+        }
+    }
+
+    private void remove(int cell, int value) {
+        board[cell] = 0;
+        long bit = ~(1L << (value - 1));
+        for (int u : spec.cellUnits[cell]) {
+            used[u] &= bit;
+        }
+        int cage = spec.cageOf[cell];
+        if (cage >= 0) {
+            cageTotal[cage] -= value;
+            cageEmpty[cage]++;
+        }
+    }
+}
@@ -0,0 +1,13 @@
+// Lets another thread ask a running search to stop.
+// The solver only reads the flag every few hundred nodes, so checking it costs next to nothing.
+public final class CancellationToken {
+    private volatile boolean cancelled;
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+}
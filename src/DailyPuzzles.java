@@ -0,0 +1,268 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// The shared puzzle of the day. A date maps to a seed and the seed to a puzzle, so every player
+// (and the server) gets the same board for the same date without talking to each other:
+//   java DailyPuzzles [days=30] [file]   precomputes the coming days and prints them
+//
+// Each weekday has a target grade, from Easy on Monday up to Expert on Sunday. Candidates come
+// from SudokuGenerator.generateUnique with seeds derived from the date's seed. The first one that
+// grades to the target wins, and the last candidate is used if none does within MAX_ATTEMPTS.
+// A background job computes the coming days ahead of time into a file of fixed-size records
+// indexed by day, which is kept in memory, so today's puzzle is an array lookup. A date outside
+// the file is computed on the spot and gives the same puzzle.
+// Which puzzle a seed gives depends on the generator and the grader, so ALGORITHM is part of
+// every seed and of the file header. A file written by another algorithm is recomputed.
+public final class DailyPuzzles {
+    public static final Path DEFAULT_FILE = Paths.get(System.getProperty("sudoku.daily.file",
+            Paths.get(System.getProperty("user.home"), ".sudoku", "daily.dat").toString()));
+
+    static final int MAGIC = 0x53444B44; // "SDKD"
+    static final int VERSION = 2;          // 1 had no algorithm field
+    // Bump whenever a SudokuGenerator or PuzzleValidator change can give a date another puzzle.
+    // 2: removal order and Expert threshold of the propagating solver
+    static final int ALGORITHM = 2;
+    private static final int HEADER = 24;  // magic, version, algorithm, first epoch day, day count
+    private static final int RECORD = 64;  // seed, grade, reserved byte, 11-byte givens mask, 41 bytes of solution nibbles
+
+    private static final int MAX_ATTEMPTS = 20;
+    private static final long SEED_SALT = 0x5D0C0DA11L;
+    private static final PuzzleValidator.Grade[] GRADES = PuzzleValidator.Grade.values();
+    private static final GridSpec CLASSIC = GridSpec.classic(3);
+
+    public static final class Entry {
+        public final LocalDate date;
+        public final long seed;                    // seed the puzzle was generated from
+        public final PuzzleValidator.Grade grade;
+        public final SudokuPuzzle puzzle;
+
+        Entry(LocalDate date, long seed, PuzzleValidator.Grade grade, SudokuPuzzle puzzle) {
+            this.date = date;
+            this.seed = seed;
+            this.grade = grade;
+            this.puzzle = puzzle;
+        }
+    }
+
+    // The loaded file, replaced as a whole after every precomputation
+    private static final class Index {
+        final long firstDay;
+        final int days;
+        final byte[] records;
+
+        Index(long firstDay, int days, byte[] records) {
+            this.firstDay = firstDay;
+            this.days = days;
+            this.records = records;
+        }
+    }
+
+    private final Path file;
+    private volatile Index index = new Index(0, 0, new byte[0]);
+    private ScheduledExecutorService precomputer;
+
+    public DailyPuzzles(Path file) {
+        this.file = file;
+        try {
+            index = load(file);
+        } catch (NoSuchFileException e) {
+            // Nothing precomputed yet
+        } catch (IOException e) {
+            System.err.println("Error reading daily puzzles: " + e.getMessage());
+        }
+    }
+
+    public static PuzzleValidator.Grade targetGrade(LocalDate date) {
+        DayOfWeek day = date.getDayOfWeek();
+        switch (day) {
+            case MONDAY:
+            case TUESDAY:
+                return PuzzleValidator.Grade.EASY;
+            case WEDNESDAY:
+            case THURSDAY:
+                return PuzzleValidator.Grade.MEDIUM;
+            case FRIDAY:
+            case SATURDAY:
+                return PuzzleValidator.Grade.HARD;
+            default:
+                return PuzzleValidator.Grade.EXPERT;
+        }
+    }
+
+    public static long seedFor(LocalDate date) {
+        return mix((date.toEpochDay() ^ SEED_SALT) + ((long) ALGORITHM << 32));
+    }
+
+    public Entry today() {
+        return get(LocalDate.now());
+    }
+
+    public Entry get(LocalDate date) {
+        Index current = index;
+        long offset = date.toEpochDay() - current.firstDay;
+        if (offset >= 0 && offset < current.days) {
+            return decode(date, current.records, (int) offset * RECORD);
+        }
+        return compute(date);
+    }
+
+    // Deterministic: the same date always gives the same puzzle
+    public static Entry compute(LocalDate date) {
+        PuzzleValidator.Grade target = targetGrade(date);
+        int difficulty = Math.min(target.ordinal(), 2);
+        long seed = 0;
+        SudokuPuzzle puzzle = null;
+        PuzzleValidator.Grade grade = null;
+        for (int attempt = 0; attempt < MAX_ATTEMPTS && grade != target; attempt++) {
+            seed = mix(seedFor(date) + attempt);
+            puzzle = new SudokuGenerator(new Random(seed)).generateUnique(difficulty);
+            // No time limit: a slow machine must not grade differently and pick another seed.
+            // generateUnique boards are unique 9x9 puzzles, which solve in well under a millisecond.
+            grade = PuzzleValidator.validate(puzzle.spec, puzzle.givens, SolveBudget.unlimited()).grade;
+        }
+        return new Entry(date, seed, grade, puzzle);
+    }
+
+    // Makes sure the file covers `days` days from `from`, computing only the missing ones.
+    // Days before `from` are dropped (get() still computes them on demand), and days already
+    // in the file after the range are kept.
+    public synchronized void precompute(LocalDate from, int days) throws IOException {
+        Index current = index;
+        long first = from.toEpochDay();
+        long end = first + days;
+        if (current.days > 0) {
+            if (current.firstDay == first && current.firstDay + current.days >= end) {
+                return;
+            }
+            end = Math.max(end, current.firstDay + current.days);
+        }
+        int count = (int) (end - first);
+        ByteBuffer out = ByteBuffer.allocate(HEADER + count * RECORD);
+        out.putInt(MAGIC).putInt(VERSION).putInt(ALGORITHM).putLong(first).putInt(count);
+        for (long day = first; day < end; day++) {
+            long offset = day - current.firstDay;
+            if (current.days > 0 && offset >= 0 && offset < current.days) {
+                out.put(current.records, (int) offset * RECORD, RECORD);
+            } else {
+                out.put(encode(compute(LocalDate.ofEpochDay(day))));
+            }
+        }
+
+        Path parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temp = Files.createTempFile(parent, "daily", ".tmp");
+        Files.write(temp, out.array());
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        byte[] records = new byte[count * RECORD];
+        System.arraycopy(out.array(), HEADER, records, 0, records.length);
+        index = new Index(first, count, records);
+    }
+
+    // Keeps the next `days` days precomputed: right away, then every six hours on a daemon thread
+    public synchronized void startPrecompute(int days) {
+        if (precomputer != null) {
+            return;
+        }
+        precomputer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "daily-precompute");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        precomputer.scheduleWithFixedDelay(() -> {
+            try {
+                precompute(LocalDate.now(), days);
+            } catch (IOException e) {
+                System.err.println("Error writing daily puzzles: " + e.getMessage());
+            }
+        }, 0, 6, TimeUnit.HOURS);
+    }
+
+    private static Index load(Path file) throws IOException {
+        ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(file));
+        if (in.remaining() < 8 || in.getInt() != MAGIC) {
+            throw new IOException("Not a daily puzzle file: " + file);
+        }
+        if (in.getInt() != VERSION || in.remaining() < HEADER - 8 || in.getInt() != ALGORITHM) {
+            // Written by another build: its puzzles may differ from ours, so compute them again
+            return new Index(0, 0, new byte[0]);
+        }
+        long firstDay = in.getLong();
+        int days = in.getInt();
+        if (days < 0 || in.remaining() != days * RECORD) {
+            throw new IOException("Truncated daily puzzle file: " + file);
+        }
+        byte[] records = new byte[days * RECORD];
+        in.get(records);
+        return new Index(firstDay, days, records);
+    }
+
+    private static byte[] encode(Entry entry) {
+        ByteBuffer out = ByteBuffer.allocate(RECORD);
+        out.putLong(entry.seed);
+        out.put((byte) (entry.grade == null ? 0 : entry.grade.ordinal() + 1));
+        out.put((byte) 0); // reserved
+        byte[] mask = new byte[11];
+        for (int cell = 0; cell < 81; cell++) {
+            if (entry.puzzle.givens[cell] != 0) {
+                mask[cell >>> 3] |= (byte) (1 << (cell & 7));
+            }
+        }
+        out.put(mask);
+        for (int cell = 0; cell < 81; cell += 2) {
+            int high = cell + 1 < 81 ? entry.puzzle.solution[cell + 1] : 0;
+            out.put((byte) (entry.puzzle.solution[cell] | high << 4));
+        }
+        return out.array();
+    }
+
+    private static Entry decode(LocalDate date, byte[] records, int at) {
+        ByteBuffer in = ByteBuffer.wrap(records, at, RECORD);
+        long seed = in.getLong();
+        int grade = in.get();
+        int maskAt = at + 10;
+        int solutionAt = at + 21;
+        int[] givens = new int[81];
+        int[] solution = new int[81];
+        for (int cell = 0; cell < 81; cell++) {
+            int packed = records[solutionAt + (cell >>> 1)];
+            solution[cell] = (cell & 1) == 0 ? packed & 0xF : (packed >>> 4) & 0xF;
+            if ((records[maskAt + (cell >>> 3)] & (1 << (cell & 7))) != 0) {
+                givens[cell] = solution[cell];
+            }
+        }
+        return new Entry(date, seed, grade == 0 ? null : GRADES[grade - 1],
+                new SudokuPuzzle(CLASSIC, givens, solution));
+    }
+
+    // SplitMix64 finalizer
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    public static void main(String[] args) throws IOException {
+        int days = args.length > 0 ? Integer.parseInt(args[0]) : 30;
+        DailyPuzzles daily = new DailyPuzzles(args.length > 1 ? Paths.get(args[1]) : DEFAULT_FILE);
+        long start = System.nanoTime();
+        daily.precompute(LocalDate.now(), days);
+        System.out.printf("Precomputed %d days in %.1f ms%n", days, (System.nanoTime() - start) / 1e6);
+        for (int i = 0; i < days; i++) {
+            Entry entry = daily.get(LocalDate.now().plusDays(i));
+            System.out.printf("%s %-9s %-6s %s%n", entry.date, entry.date.getDayOfWeek(),
+                    entry.grade == null ? "-" : entry.grade.label, PuzzleParser.format(entry.puzzle.givens));
+        }
+    }
+}
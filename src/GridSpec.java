@@ -0,0 +1,268 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+// Describes the shape of a board and the constraints every solution has to satisfy.
+// Cells are addressed by a flat index (row * side + col) and values run 1..side.
+// Every constraint is reduced to "units": groups of cells that must hold distinct values.
+// Rows and columns are always units, then boxes (or jigsaw regions), the two
+// diagonals for X-Sudoku and the cages for Killer Sudoku.
+public final class GridSpec {
+    public enum Variant {
+        CLASSIC("Classic"), DIAGONAL("Diagonal"), JIGSAW("Jigsaw"), KILLER("Killer");
+
+        public final String label;
+
+        Variant(String label) {
+            this.label = label;
+        }
+    }
+
+    public static final int MIN_BOX = 2;
+    public static final int MAX_BOX = 5;
+
+    public final Variant variant;
+    public final int box;        // size of a box, e.g. 3 for a 9x9 board
+    public final int side;       // number of rows/columns/symbols (box * box)
+    public final int cellCount;  // side * side
+    public final long fullMask;  // one bit per symbol, bit (v - 1) for value v
+    public final boolean diagonal;
+
+    final int[] region;          // box or jigsaw region of each cell
+    final int[][] units;         // every all-different group of cells
+    final int fullUnits;         // units[0..fullUnits) hold every symbol once, the cages come after them
+    final int[][] cellUnits;     // indices into units for each cell
+    final int[][] peers;         // distinct cells sharing a unit with each cell
+    final int[][] cages;         // Killer cages (empty for other variants)
+    final int[] cageSums;
+    final int[] cageOf;          // cage index of each cell, -1 if none
+
+    private GridSpec(Variant variant, int box, int[] region, boolean diagonal, int[][] cages, int[] cageSums) {
+        if (box < MIN_BOX || box > MAX_BOX) {
+            throw new IllegalArgumentException("Box size must be between " + MIN_BOX + " and " + MAX_BOX + ": " + box);
+        }
+        this.variant = variant;
+        this.box = box;
+        this.side = box * box;
+        this.cellCount = side * side;
+        this.fullMask = (1L << side) - 1;
+        this.diagonal = diagonal;
+        this.region = region;
+        this.cages = cages;
+        this.cageSums = cageSums;
+
+        if (region.length != cellCount) {
+            throw new IllegalArgumentException("Region map must have " + cellCount + " cells");
+        }
+
+        List<int[]> unitList = new ArrayList<>();
+        for (int r = 0; r < side; r++) {
+            int[] row = new int[side];
+            for (int c = 0; c < side; c++) {
+                row[c] = r * side + c;
+            }
+            unitList.add(row);
+        }
+        for (int c = 0; c < side; c++) {
+            int[] col = new int[side];
+            for (int r = 0; r < side; r++) {
+                col[r] = r * side + c;
+            }
+            unitList.add(col);
+        }
+        int[] regionSizes = new int[side];
+        for (int cell = 0; cell < cellCount; cell++) {
+            if (region[cell] < 0 || region[cell] >= side) {
+                throw new IllegalArgumentException("Region index out of range at cell " + cell);
+            }
+            regionSizes[region[cell]]++;
+        }
+        int[][] regions = new int[side][];
+        for (int g = 0; g < side; g++) {
+            if (regionSizes[g] != side) {
+                throw new IllegalArgumentException("Region " + g + " must have " + side + " cells");
+            }
+            regions[g] = new int[side];
+            regionSizes[g] = 0;
+        }
+        for (int cell = 0; cell < cellCount; cell++) {
+            int g = region[cell];
+            regions[g][regionSizes[g]++] = cell;
+        }
+        unitList.addAll(Arrays.asList(regions));
+        if (diagonal) {
+            int[] main = new int[side];
+            int[] anti = new int[side];
+            for (int i = 0; i < side; i++) {
+                main[i] = i * side + i;
+                anti[i] = i * side + (side - 1 - i);
+            }
+            unitList.add(main);
+            unitList.add(anti);
+        }
+
+        this.fullUnits = unitList.size();
+        this.cageOf = new int[cellCount];
+        Arrays.fill(cageOf, -1);
+        for (int k = 0; k < cages.length; k++) {
+            if (cages[k].length > side) {
+                throw new IllegalArgumentException("Cage " + k + " has more cells than symbols");
+            }
+            for (int cell : cages[k]) {
+                if (cageOf[cell] != -1) {
+                    throw new IllegalArgumentException("Cell " + cell + " belongs to two cages");
+                }
+                cageOf[cell] = k;
+            }
+            unitList.add(cages[k]);
+        }
+
+        this.units = unitList.toArray(new int[0][]);
+
+        int[] unitsPerCell = new int[cellCount];
+        for (int[] unit : units) {
+            for (int cell : unit) {
+                unitsPerCell[cell]++;
+            }
+        }
+        this.cellUnits = new int[cellCount][];
+        for (int cell = 0; cell < cellCount; cell++) {
+            cellUnits[cell] = new int[unitsPerCell[cell]];
+            unitsPerCell[cell] = 0;
+        }
+        for (int u = 0; u < units.length; u++) {
+            for (int cell : units[u]) {
+                cellUnits[cell][unitsPerCell[cell]++] = u;
+            }
+        }
+
+        this.peers = new int[cellCount][];
+        for (int cell = 0; cell < cellCount; cell++) {
+            Set<Integer> set = new LinkedHashSet<>();
+            for (int u : cellUnits[cell]) {
+                for (int other : units[u]) {
+                    if (other != cell) {
+                        set.add(other);
+                    }
+                }
+            }
+            peers[cell] = set.stream().mapToInt(Integer::intValue).toArray();
+        }
+    }
+
+    // Plain Sudoku with box x box boxes (box = 3 is the usual 9x9 board)
+    public static GridSpec classic(int box) {
+        return new GridSpec(Variant.CLASSIC, box, boxRegions(box), false, new int[0][], new int[0]);
+    }
+
+    // X-Sudoku: both main diagonals must also contain every symbol once
+    public static GridSpec diagonal(int box) {
+        return new GridSpec(Variant.DIAGONAL, box, boxRegions(box), true, new int[0][], new int[0]);
+    }
+
+    // Jigsaw Sudoku: boxes are replaced by irregular regions of side cells each
+    public static GridSpec jigsaw(int box, int[] region) {
+        return new GridSpec(Variant.JIGSAW, box, region.clone(), false, new int[0][], new int[0]);
+    }
+
+    // Killer Sudoku: classic rules plus cages whose cells are distinct and add up to a target sum
+    public static GridSpec killer(int box, int[][] cages, int[] cageSums) {
+        if (cages.length != cageSums.length) {
+            throw new IllegalArgumentException("Every cage needs exactly one sum");
+        }
+        int[][] copy = new int[cages.length][];
+        for (int k = 0; k < cages.length; k++) {
+            copy[k] = cages[k].clone();
+        }
+        return new GridSpec(Variant.KILLER, box, boxRegions(box), false, copy, cageSums.clone());
+    }
+
+    // Standard box layout: region index of every cell for box x box boxes
+    public static int[] boxRegions(int box) {
+        int side = box * box;
+        int[] region = new int[side * side];
+        for (int r = 0; r < side; r++) {
+            for (int c = 0; c < side; c++) {
+                region[r * side + c] = (r / box) * box + c / box;
+            }
+        }
+        return region;
+    }
+
+    public int regionOf(int row, int col) {
+        return region[row * side + col];
+    }
+
+    public int cageOf(int row, int col) {
+        return cageOf[row * side + col];
+    }
+
+    public int cageCount() {
+        return cages.length;
+    }
+
+    public int[] cageCells(int cage) {
+        return cages[cage].clone();
+    }
+
+    public int cageSum(int cage) {
+        return cageSums[cage];
+    }
+
+    // Checks that a completely or partially filled board breaks no constraint
+    public boolean isConsistent(int[] board) {
+        if (board.length != cellCount) {
+            return false;
+        }
+        for (int[] unit : units) {
+            long seen = 0;
+            for (int cell : unit) {
+                int v = board[cell];
+                if (v < 0 || v > side) {
+                    return false;
+                }
+                if (v == 0) {
+                    continue;
+                }
+                long bit = 1L << (v - 1);
+                if ((seen & bit) != 0) {
+                    return false;
+                }
+                seen |= bit;
+            }
+        }
+        for (int k = 0; k < cages.length; k++) {
+            int sum = 0;
+            boolean complete = true;
+            for (int cell : cages[k]) {
+                sum += board[cell];
+                complete &= board[cell] != 0;
+            }
+            if (sum > cageSums[k] || (complete && sum != cageSums[k])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public int[] flatten(int[][] grid) {
+        int[] board = new int[cellCount];
+        for (int r = 0; r < side; r++) {
+            System.arraycopy(grid[r], 0, board, r * side, side);
+        }
+        return board;
+    }
+
+    public void unflatten(int[] board, int[][] grid) {
+        for (int r = 0; r < side; r++) {
+            System.arraycopy(board, r * side, grid[r], 0, side);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return variant.label + " " + side + "x" + side;
+    }
+}
@@ -0,0 +1,295 @@
+// 9x9 solver without recursion. The search runs in one loop over a preallocated explicit
+// stack: frame d holds the cell chosen at depth d (empty[d]) and the candidate mask still to
+// try there (stackMask[d]). Nothing is allocated per node and the stack depth of the calling
+// thread stays constant, so the solver can run on many (virtual) threads at once and the
+// JIT can compile the whole search as one method.
+// Row, column and box masks give the candidates of a cell with three loads and an OR.
+// Each node places a naked or hidden single if there is one and otherwise branches on the
+// empty cell with the fewest candidates.
+public class IterativeSolver {
+    private static final int N = 81;
+    private static final int ALL = 0x1FF;
+
+    static final int[] ROW = new int[N];
+    static final int[] COL = new int[N];
+    static final int[] BOX = new int[N];
+    static final int[][] PEERS = new int[N][20]; // the 8 + 8 + 4 other cells sharing a row, column or box
+    static final int[][] UNITS = new int[27][9];  // rows 0-8, columns 9-17, boxes 18-26
+
+    static {
+        for (int cell = 0; cell < N; cell++) {
+            ROW[cell] = cell / 9;
+            COL[cell] = cell % 9;
+            BOX[cell] = (cell / 27) * 3 + (cell % 9) / 3;
+        }
+        int[] filled = new int[27];
+        for (int cell = 0; cell < N; cell++) {
+            UNITS[ROW[cell]][filled[ROW[cell]]++] = cell;
+            UNITS[9 + COL[cell]][filled[9 + COL[cell]]++] = cell;
+            UNITS[18 + BOX[cell]][filled[18 + BOX[cell]]++] = cell;
+        }
+        for (int cell = 0; cell < N; cell++) {
+            int count = 0;
+            for (int other = 0; other < N; other++) {
+                if (other != cell && (ROW[other] == ROW[cell] || COL[other] == COL[cell] || BOX[other] == BOX[cell])) {
+                    PEERS[cell][count++] = other;
+                }
+            }
+        }
+    }
+
+    private final int[] board = new int[N];
+    private final int[] rows = new int[9];
+    private final int[] cols = new int[9];
+    private final int[] boxes = new int[9];
+    private final int[] empty = new int[N];     // empty cells; empty[0..depth) are filled by the search
+    private final int[] stackMask = new int[N]; // candidates not tried yet at each depth
+    private final int[] position = new int[N];  // index of each empty cell in empty[]
+    private final int[] cand = new int[N];      // candidates of each empty cell at the current node
+    private final int[] firstSolution = new int[N];
+
+    private long nodes;
+    private long backtracks;    // dead ends: an empty cell without candidates
+    private long propagations;  // forced placements (naked or hidden singles)
+    private boolean aborted;
+    private boolean cancelled;
+
+    // Solves the board in place. Returns false (and leaves the board untouched) if there is no solution.
+    public boolean solve(int[] cells) {
+        if (run(cells, 1, SolveBudget.unlimited()) == 0) {
+            return false;
+        }
+        System.arraycopy(firstSolution, 0, cells, 0, N);
+        return true;
+    }
+
+    // Counts solutions, stopping as soon as limit of them have been found
+    public int countSolutions(int[] cells, int limit) {
+        return run(cells, limit, SolveBudget.unlimited());
+    }
+
+    // Budgeted solve with the same contract as BitmaskSolver.solve(int[], SolveBudget)
+    public SolveResult solve(int[] cells, SolveBudget budget) {
+        long start = System.nanoTime();
+        int found = run(cells, 2, budget);
+        SolveResult.Status status;
+        if (aborted) {
+            status = cancelled ? SolveResult.Status.CANCELLED : SolveResult.Status.BUDGET_EXCEEDED;
+        } else if (found == 0) {
+            status = SolveResult.Status.UNSOLVABLE;
+        } else if (found == 1) {
+            status = SolveResult.Status.SOLVED;
+        } else {
+            status = SolveResult.Status.MULTIPLE;
+        }
+        int[] solution = !aborted && found > 0 ? firstSolution.clone() : null;
+        return new SolveResult(status, solution, nodes, backtracks, propagations, System.nanoTime() - start);
+    }
+
+    public long nodes() {
+        return nodes;
+    }
+
+    private int run(int[] cells, int limit, SolveBudget budget) {
+        if (cells.length != N) {
+            throw new IllegalArgumentException("Expected 81 cells but got " + cells.length);
+        }
+        SudokuEvents.SolveEvent event = new SudokuEvents.SolveEvent();
+        event.begin();
+        long start = System.nanoTime();
+        nodes = 0;
+        backtracks = 0;
+        propagations = 0;
+        aborted = false;
+        cancelled = false;
+
+        int found = 0;
+        int emptyCount = load(cells);
+        if (emptyCount >= 0) {
+            boolean timed = budget.timeoutNanos != Long.MAX_VALUE;
+            found = search(emptyCount, limit, budget.maxNodes, timed ? start + budget.timeoutNanos : 0,
+                    timed, budget.token);
+        }
+
+        Metrics.SOLVE_LATENCY.recordSince(start);
+        Metrics.SOLVER_CALLS.increment();
+        Metrics.SOLVER_NODES.add(nodes);
+        Metrics.SOLVER_BACKTRACKS.add(backtracks);
+        Metrics.SOLVER_PROPAGATIONS.add(propagations);
+        event.end();
+        if (event.shouldCommit()) {
+            event.variant = GridSpec.Variant.CLASSIC.label;
+            event.boardSize = 9;
+            event.solutions = found;
+            event.nodes = nodes;
+            event.backtracks = backtracks;
+            event.propagations = propagations;
+            event.commit();
+        }
+        return found;
+    }
+
+    // Copies the givens in and lists the empty cells. Returns -1 if two givens clash.
+    private int load(int[] cells) {
+        for (int i = 0; i < 9; i++) {
+            rows[i] = 0;
+            cols[i] = 0;
+            boxes[i] = 0;
+        }
+        int emptyCount = 0;
+        for (int cell = 0; cell < N; cell++) {
+            int v = cells[cell];
+            if (v < 0 || v > 9) {
+                return -1;
+            }
+            board[cell] = v;
+            if (v == 0) {
+                position[cell] = emptyCount;
+                empty[emptyCount++] = cell;
+            }
+        }
+        for (int cell = 0; cell < N; cell++) {
+            int v = board[cell];
+            if (v == 0) {
+                continue;
+            }
+            for (int peer : PEERS[cell]) {
+                if (board[peer] == v) {
+                    return -1;
+                }
+            }
+            int bit = 1 << (v - 1);
+            rows[ROW[cell]] |= bit;
+            cols[COL[cell]] |= bit;
+            boxes[BOX[cell]] |= bit;
+        }
+        return emptyCount;
+    }
+
+    private int search(int emptyCount, int limit, long maxNodes, long deadline, boolean hasDeadline,
+                       CancellationToken token) {
+        int solutions = 0;
+        int depth = 0;
+        boolean descend = true;
+
+        while (true) {
+            if (descend) {
+                if (depth == emptyCount) {
+                    // Every cell is filled: record the solution and keep backtracking for more
+                    if (solutions++ == 0) {
+                        System.arraycopy(board, 0, firstSolution, 0, N);
+                    }
+                    if (solutions >= limit) {
+                        return solutions;
+                    }
+                    descend = false;
+                    if (--depth < 0) {
+                        return solutions;
+                    }
+                    continue;
+                }
+
+                SolveResult.Status stopped = SolveBudget.stopReason(++nodes, maxNodes, deadline, hasDeadline, token);
+                if (stopped != null) {
+                    aborted = true;
+                    cancelled = stopped == SolveResult.Status.CANCELLED;
+                    return solutions;
+                }
+
+                // Branch on the empty cell with the fewest candidates
+                int bestPos = depth;
+                int bestMask = 0;
+                int bestCount = 10;
+                for (int i = depth; i < emptyCount; i++) {
+                    int cell = empty[i];
+                    int mask = ALL & ~(rows[ROW[cell]] | cols[COL[cell]] | boxes[BOX[cell]]);
+                    cand[cell] = mask;
+                    int count = Integer.bitCount(mask);
+                    if (count < bestCount) {
+                        bestPos = i;
+                        bestMask = mask;
+                        bestCount = count;
+                        if (count <= 1) {
+                            break;
+                        }
+                    }
+                }
+                if (bestCount > 1) {
+                    // Hidden singles: a symbol with one place left in a row, column or box
+                    for (int u = 0; u < 27; u++) {
+                        int once = 0;
+                        int twice = 0;
+                        for (int cell : UNITS[u]) {
+                            if (board[cell] == 0) {
+                                twice |= once & cand[cell];
+                                once |= cand[cell];
+                            }
+                        }
+                        int placed = u < 9 ? rows[u] : u < 18 ? cols[u - 9] : boxes[u - 18];
+                        if (((ALL & ~placed) & ~once) != 0) {
+                            bestCount = 0; // a symbol has nowhere left to go
+                            break;
+                        }
+                        int single = once & ~twice;
+                        if (single != 0) {
+                            int bit = single & -single;
+                            for (int cell : UNITS[u]) {
+                                if (board[cell] == 0 && (cand[cell] & bit) != 0) {
+                                    bestPos = position[cell];
+                                    break;
+                                }
+                            }
+                            bestMask = bit;
+                            bestCount = 1;
+                            break;
+                        }
+                    }
+                }
+                if (bestCount == 0) {
+                    backtracks++;
+                    descend = false;
+                    if (--depth < 0) {
+                        return solutions;
+                    }
+                    continue;
+                }
+                if (bestCount == 1) {
+                    propagations++;
+                }
+                int tmp = empty[depth];
+                empty[depth] = empty[bestPos];
+                empty[bestPos] = tmp;
+                position[empty[depth]] = depth;
+                position[tmp] = bestPos;
+                stackMask[depth] = bestMask;
+            } else {
+                // Coming back up: take back the value tried at this depth
+                int cell = empty[depth];
+                int bit = ~(1 << (board[cell] - 1));
+                rows[ROW[cell]] &= bit;
+                cols[COL[cell]] &= bit;
+                boxes[BOX[cell]] &= bit;
+                board[cell] = 0;
+            }
+
+            int mask = stackMask[depth];
+            if (mask == 0) {
+                // No candidates left here, go back one more level
+                descend = false;
+                if (--depth < 0) {
+                    return solutions;
+                }
+                continue;
+            }
+            int bit = mask & -mask;
+            stackMask[depth] = mask ^ bit;
+            int cell = empty[depth];
+            board[cell] = Integer.numberOfTrailingZeros(bit) + 1;
+            rows[ROW[cell]] |= bit;
+            cols[COL[cell]] |= bit;
+            boxes[BOX[cell]] |= bit;
+            depth++;
+            descend = true;
+        }
+    }
+}
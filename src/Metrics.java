@@ -0,0 +1,277 @@
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+// Process-wide registry of counters and latency histograms.
+// Recording a sample never allocates: counters are LongAdders and histograms are fixed
+// arrays of buckets, so the instrumentation can stay on in normal play.
+// The registry can be published over JMX (registerJmx) and dumped to a log file periodically.
+public final class Metrics {
+    // Must be initialised before the well-known metrics below register themselves
+    private static final Map<String, Object> REGISTRY = new ConcurrentSkipListMap<>();
+    private static ScheduledExecutorService dumper;
+
+    // Well-known metrics of the game engine
+    public static final Histogram GENERATE_LATENCY = histogram("generate.latency");
+    public static final Histogram SOLVE_LATENCY = histogram("solve.latency");
+    public static final Histogram REPAINT_LATENCY = histogram("ui.repaint.latency");
+    public static final Counter SOLVER_CALLS = counter("solver.calls");
+    public static final Counter SOLVER_NODES = counter("solver.nodes");
+    public static final Counter SOLVER_BACKTRACKS = counter("solver.backtracks");
+    public static final Counter SOLVER_PROPAGATIONS = counter("solver.propagations");
+
+    private Metrics() {
+    }
+
+    public static Counter counter(String name) {
+        return (Counter) REGISTRY.computeIfAbsent(name, n -> new Counter());
+    }
+
+    public static Histogram histogram(String name) {
+        return (Histogram) REGISTRY.computeIfAbsent(name, n -> new Histogram());
+    }
+
+    // Monotonic counter
+    public static final class Counter {
+        private final LongAdder value = new LongAdder();
+
+        public void increment() {
+            value.increment();
+        }
+
+        public void add(long delta) {
+            value.add(delta);
+        }
+
+        public long get() {
+            return value.sum();
+        }
+    }
+
+    // HDR-style latency histogram over nanoseconds.
+    // Values below 2^SUB_BITS get their own bucket, larger values share SUB_COUNT buckets per
+    // power of two, so every recorded value is within about 3% of its bucket.
+    public static final class Histogram {
+        private static final int SUB_BITS = 5;
+        private static final int SUB_COUNT = 1 << SUB_BITS;
+        private static final int BUCKETS = (64 - SUB_BITS) * SUB_COUNT;
+
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sum = new LongAdder();
+        private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+        public void record(long nanos) {
+            long value = Math.max(0, nanos);
+            counts.incrementAndGet(bucketOf(value));
+            count.increment();
+            sum.add(value);
+            max.accumulate(value);
+        }
+
+        // Records the time elapsed since startNanos (a System.nanoTime() value)
+        public void recordSince(long startNanos) {
+            record(System.nanoTime() - startNanos);
+        }
+
+        public long count() {
+            return count.sum();
+        }
+
+        public long max() {
+            return max.get();
+        }
+
+        public double mean() {
+            long n = count.sum();
+            return n == 0 ? 0 : (double) sum.sum() / n;
+        }
+
+        // Upper bound of the bucket holding the q-th quantile (0 <= q <= 1)
+        public long percentile(double q) {
+            long total = count.sum();
+            if (total == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(q * total));
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts.get(i);
+                if (seen >= rank) {
+                    return Math.min(max.get(), i + 1 < BUCKETS ? lowestValue(i + 1) - 1 : Long.MAX_VALUE);
+                }
+            }
+            return max.get();
+        }
+
+        static int bucketOf(long value) {
+            if (value < SUB_COUNT) {
+                return (int) value;
+            }
+            int magnitude = 63 - Long.numberOfLeadingZeros(value);
+            int sub = (int) (value >>> (magnitude - SUB_BITS));
+            return (magnitude - SUB_BITS + 1) * SUB_COUNT + (sub - SUB_COUNT);
+        }
+
+        static long lowestValue(int bucket) {
+            if (bucket < SUB_COUNT) {
+                return bucket;
+            }
+            int group = bucket / SUB_COUNT;
+            long sub = bucket % SUB_COUNT + SUB_COUNT;
+            return sub << (group - 1);
+        }
+    }
+
+    // One line per metric: counters as "name value", histograms with count, mean and percentiles in microseconds
+    public static void writeSnapshot(Writer out) {
+        PrintWriter writer = new PrintWriter(out);
+        writer.println("# metrics " + Instant.now());
+        for (Map.Entry<String, Object> entry : REGISTRY.entrySet()) {
+            Object metric = entry.getValue();
+            if (metric instanceof Counter) {
+                writer.println(entry.getKey() + " " + ((Counter) metric).get());
+            } else {
+                Histogram h = (Histogram) metric;
+                writer.printf("%s count=%d mean=%.1fus p50=%.1fus p99=%.1fus p999=%.1fus max=%.1fus%n",
+                        entry.getKey(), h.count(), h.mean() / 1000.0,
+                        h.percentile(0.5) / 1000.0, h.percentile(0.99) / 1000.0,
+                        h.percentile(0.999) / 1000.0, h.max() / 1000.0);
+            }
+        }
+        writer.flush();
+    }
+
+    // Appends a snapshot to the file every periodSeconds on a daemon thread
+    public static synchronized void startLogDump(Path file, long periodSeconds) {
+        if (dumper != null) {
+            return;
+        }
+        dumper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "metrics-dump");
+            thread.setDaemon(true);
+            return thread;
+        });
+        dumper.scheduleAtFixedRate(() -> {
+            try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                writeSnapshot(out);
+            } catch (IOException e) {
+                System.err.println("Error writing metrics: " + e.getMessage());
+            }
+        }, periodSeconds, periodSeconds, TimeUnit.SECONDS);
+    }
+
+    // Publishes every metric as a read-only attribute of the MBean "sudoku:type=Metrics"
+    public static void registerJmx() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName("sudoku:type=Metrics");
+            if (!server.isRegistered(name)) {
+                server.registerMBean(new MetricsMBean(), name);
+            }
+        } catch (JMException e) {
+            System.err.println("Error registering metrics MBean: " + e.getMessage());
+        }
+    }
+
+    // Counters appear under their own name, histograms as name.count, name.p50, name.p99 and name.max (ns)
+    private static final class MetricsMBean implements DynamicMBean {
+        private static final String[] HISTOGRAM_FIELDS = {"count", "p50", "p99", "max"};
+
+        @Override
+        public Object getAttribute(String attribute) throws AttributeNotFoundException {
+            Object metric = REGISTRY.get(attribute);
+            if (metric instanceof Counter) {
+                return ((Counter) metric).get();
+            }
+            int dot = attribute.lastIndexOf('.');
+            if (dot > 0 && REGISTRY.get(attribute.substring(0, dot)) instanceof Histogram) {
+                Histogram h = (Histogram) REGISTRY.get(attribute.substring(0, dot));
+                switch (attribute.substring(dot + 1)) {
+                    case "count":
+                        return h.count();
+                    case "p50":
+                        return h.percentile(0.5);
+                    case "p99":
+                        return h.percentile(0.99);
+                    case "max":
+                        return h.max();
+                    default:
+                        break;
+                }
+            }
+            throw new AttributeNotFoundException(attribute);
+        }
+
+        @Override
+        public AttributeList getAttributes(String[] attributes) {
+            AttributeList list = new AttributeList();
+            for (String attribute : attributes) {
+                try {
+                    list.add(new Attribute(attribute, getAttribute(attribute)));
+                } catch (AttributeNotFoundException e) {
+                    // Unknown attributes are left out, as the DynamicMBean contract allows
+                }
+            }
+            return list;
+        }
+
+        @Override
+        public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+            throw new AttributeNotFoundException("Metrics are read-only");
+        }
+
+        @Override
+        public AttributeList setAttributes(AttributeList attributes) {
+            return new AttributeList();
+        }
+
+        @Override
+        public Object invoke(String actionName, Object[] params, String[] signature) {
+            throw new UnsupportedOperationException(actionName);
+        }
+
+        @Override
+        public MBeanInfo getMBeanInfo() {
+            List<MBeanAttributeInfo> attributes = new ArrayList<>();
+            for (Map.Entry<String, Object> entry : REGISTRY.entrySet()) {
+                if (entry.getValue() instanceof Counter) {
+                    attributes.add(new MBeanAttributeInfo(entry.getKey(), "long", "counter", true, false, false));
+                } else {
+                    for (String field : HISTOGRAM_FIELDS) {
+                        attributes.add(new MBeanAttributeInfo(entry.getKey() + "." + field, "long",
+                                "histogram " + field + " (ns)", true, false, false));
+                    }
+                }
+            }
+            return new MBeanInfo(Metrics.class.getName(), "Sudoku engine metrics",
+                    attributes.toArray(new MBeanAttributeInfo[0]), null, null, null);
+        }
+    }
+}
@@ -0,0 +1,412 @@
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+// Game history of one player:
+//   <dir>/<player>.log   append-only log, one fixed-size record per finished game
+//   <dir>/<player>.agg   snapshot of the aggregates and the last sequence number they include
+// Counts and times are aggregated per slot, one slot per variant, board size and difficulty,
+// since a best time on a 4x4 board says nothing about a 25x25 one. The streak spans all games.
+// Opening the store loads the snapshot and replays only the log records after it, so the stats
+// screen opens in milliseconds however many games were played. A snapshot is written every
+// SNAPSHOT_EVERY games and on close(). Once the log holds COMPACT_AT records it is compacted:
+// the snapshot is written first, then the log is rewritten with just the last KEEP_RECENT games
+// (the "recent games" list). A crash in between only means replaying records the snapshot
+// already skips by sequence number.
+// Every record carries a CRC, so a torn write at the end of the log is cut off on open.
+// A snapshot of another version, or one that is truncated or corrupt, is ignored and the
+// aggregates are rebuilt from the games still in the log.
+public final class PlayerStats implements AutoCloseable {
+    public static final Path DEFAULT_DIR = Paths.get(System.getProperty("user.home"), ".sudoku", "stats");
+
+    // Difficulties are PuzzleValidator.Grade ordinals, so level choices and graded puzzles share a scale
+    public static final int DIFFICULTIES = PuzzleValidator.Grade.values().length;
+    private static final GridSpec.Variant[] VARIANTS = GridSpec.Variant.values();
+    private static final int SIZES = GridSpec.MAX_BOX - GridSpec.MIN_BOX + 1;
+    public static final int SLOTS = VARIANTS.length * SIZES * DIFFICULTIES;
+
+    static final int MAGIC = 0x53444B53; // "SDKS"
+    static final int VERSION = 2;            // 1 aggregated by difficulty only
+    private static final int RECORD = 40;
+    private static final int WINDOW = 200;         // solve times kept per slot for the rolling median
+    private static final int SNAPSHOT_EVERY = 50;
+    private static final int COMPACT_AT = 20_000;
+    private static final int KEEP_RECENT = 1_000;
+
+    public static final class Game {
+        public final long sequence;
+        public final long finishedAt;     // epoch milliseconds
+        public final long fingerprint;    // of the givens
+        public final int solveMillis;
+        public final int mistakes;
+        public final int hints;
+        public final int difficulty;      // Grade ordinal
+        public final GridSpec.Variant variant;
+        public final int side;
+        public final boolean solved;      // false if the player gave up
+
+        public Game(long sequence, long finishedAt, long fingerprint, int solveMillis, int mistakes, int hints,
+                    int difficulty, GridSpec.Variant variant, int side, boolean solved) {
+            this.sequence = sequence;
+            this.finishedAt = finishedAt;
+            this.fingerprint = fingerprint;
+            this.solveMillis = solveMillis;
+            this.mistakes = mistakes;
+            this.hints = hints;
+            this.difficulty = difficulty;
+            this.variant = variant;
+            this.side = side;
+            this.solved = solved;
+        }
+    }
+
+    // Slot of the aggregates for one variant, board side and difficulty
+    public static int slot(GridSpec.Variant variant, int side, int difficulty) {
+        int box = (int) Math.round(Math.sqrt(side));
+        if (box * box != side || box < GridSpec.MIN_BOX || box > GridSpec.MAX_BOX) {
+            throw new IllegalArgumentException("Unsupported board side " + side);
+        }
+        if (difficulty < 0 || difficulty >= DIFFICULTIES) {
+            throw new IllegalArgumentException("Unknown difficulty " + difficulty);
+        }
+        return (variant.ordinal() * SIZES + box - GridSpec.MIN_BOX) * DIFFICULTIES + difficulty;
+    }
+
+    public static GridSpec.Variant slotVariant(int slot) {
+        return VARIANTS[slot / (SIZES * DIFFICULTIES)];
+    }
+
+    public static int slotSide(int slot) {
+        int box = GridSpec.MIN_BOX + slot / DIFFICULTIES % SIZES;
+        return box * box;
+    }
+
+    public static int slotDifficulty(int slot) {
+        return slot % DIFFICULTIES;
+    }
+
+    // Everything the stats screen shows, kept up to date as games are recorded.
+    // The arrays are indexed by slot().
+    public static final class Summary {
+        public final int[] games = new int[SLOTS];
+        public final int[] solved = new int[SLOTS];
+        public final int[] bestMillis = new int[SLOTS];   // 0 = none yet
+        final int[][] recent = new int[SLOTS][];           // ring of recent solve times, null until the first
+        final int[] recentCount = new int[SLOTS];
+        final int[] recentNext = new int[SLOTS];
+        long lastSequence;
+        long lastSolvedDay = Long.MIN_VALUE;
+        int streak;
+        int bestStreak;
+
+        // Median of the last WINDOW solve times in this slot, 0 if there are none
+        public int medianMillis(int slot) {
+            int count = recentCount[slot];
+            if (count == 0) {
+                return 0;
+            }
+            int[] times = Arrays.copyOf(recent[slot], count);
+            Arrays.sort(times);
+            return times[count / 2];
+        }
+
+        // Consecutive days up to today (or yesterday) with at least one solved game
+        public int currentStreak(LocalDate today) {
+            return lastSolvedDay >= today.toEpochDay() - 1 ? streak : 0;
+        }
+
+        public int bestStreak() {
+            return bestStreak;
+        }
+
+        void add(Game game, ZoneId zone) {
+            lastSequence = game.sequence;
+            int s = slot(game.variant, game.side, game.difficulty);
+            games[s]++;
+            if (!game.solved) {
+                return;
+            }
+            solved[s]++;
+            if (bestMillis[s] == 0 || game.solveMillis < bestMillis[s]) {
+                bestMillis[s] = game.solveMillis;
+            }
+            if (recent[s] == null) {
+                recent[s] = new int[WINDOW];
+            }
+            recent[s][recentNext[s]] = game.solveMillis;
+            recentNext[s] = (recentNext[s] + 1) % WINDOW;
+            recentCount[s] = Math.min(recentCount[s] + 1, WINDOW);
+
+            long day = Instant.ofEpochMilli(game.finishedAt).atZone(zone).toLocalDate().toEpochDay();
+            if (day == lastSolvedDay + 1) {
+                streak++;
+            } else if (day != lastSolvedDay) {
+                streak = 1;
+            }
+            lastSolvedDay = Math.max(lastSolvedDay, day);
+            bestStreak = Math.max(bestStreak, streak);
+        }
+    }
+
+    private final Path log;
+    private final Path snapshot;
+    private final ZoneId zone;
+    private FileChannel out;
+    private Summary summary = new Summary();
+    private final CRC32 crc = new CRC32();
+    private long logRecords;
+    private int sinceSnapshot;
+
+    public PlayerStats(Path dir, String player) throws IOException {
+        this(dir, player, ZoneId.systemDefault());
+    }
+
+    PlayerStats(Path dir, String player, ZoneId zone) throws IOException {
+        Files.createDirectories(dir);
+        this.log = dir.resolve(player + ".log");
+        this.snapshot = dir.resolve(player + ".agg");
+        this.zone = zone;
+        loadSnapshot();
+        out = openLog();
+        replayTail();
+    }
+
+    public synchronized Summary summary() {
+        return summary;
+    }
+
+    public synchronized Game record(long fingerprint, int solveMillis, int mistakes, int hints, int difficulty,
+                                    GridSpec.Variant variant, int side, boolean solved) throws IOException {
+        slot(variant, side, difficulty); // validates all three before anything is written
+        Game game = new Game(summary.lastSequence + 1, System.currentTimeMillis(), fingerprint, solveMillis,
+                Math.min(mistakes, Short.MAX_VALUE), Math.min(hints, Short.MAX_VALUE), difficulty, variant,
+                side, solved);
+        ByteBuffer record = encode(game);
+        out.write(record, out.size());
+        logRecords++;
+        summary.add(game, zone);
+        if (++sinceSnapshot >= SNAPSHOT_EVERY) {
+            writeSnapshot();
+        }
+        if (logRecords >= COMPACT_AT) {
+            compact();
+        }
+        return game;
+    }
+
+    // The last `count` games, newest first
+    public synchronized List<Game> recent(int count) throws IOException {
+        int n = (int) Math.min(count, logRecords);
+        List<Game> games = new ArrayList<>(n);
+        ByteBuffer buffer = ByteBuffer.allocate(n * RECORD);
+        out.read(buffer, (logRecords - n) * RECORD);
+        for (int i = n - 1; i >= 0; i--) {
+            games.add(decode(buffer, i * RECORD));
+        }
+        return games;
+    }
+
+    // 64-bit fingerprint of any board size: the solution cache's hash for 9x9, FNV-1a otherwise
+    public static long fingerprint(int[] givens) {
+        if (givens.length == 81) {
+            return SolutionCache.fingerprint(givens);
+        }
+        long h = 0xCBF29CE484222325L;
+        for (int v : givens) {
+            h = (h ^ v) * 0x100000001B3L;
+        }
+        return h;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (sinceSnapshot > 0) {
+            writeSnapshot();
+        }
+        out.close();
+    }
+
+    private void loadSnapshot() throws IOException {
+        try (InputStream in = Files.newInputStream(snapshot);
+             DataInputStream data = new DataInputStream(new BufferedInputStream(in))) {
+            if (data.readInt() != MAGIC || data.readInt() != VERSION || data.readInt() != WINDOW
+                    || data.readInt() != SLOTS) {
+                return; // unknown layout: rebuilt from the log
+            }
+            Summary loaded = new Summary();
+            loaded.lastSequence = data.readLong();
+            loaded.lastSolvedDay = data.readLong();
+            loaded.streak = data.readInt();
+            loaded.bestStreak = data.readInt();
+            // Only the slots that have games, each with the used part of its ring
+            for (int n = data.readInt(); n > 0; n--) {
+                int s = data.readInt();
+                if (s < 0 || s >= SLOTS) {
+                    return;
+                }
+                loaded.games[s] = data.readInt();
+                loaded.solved[s] = data.readInt();
+                loaded.bestMillis[s] = data.readInt();
+                loaded.recentCount[s] = data.readInt();
+                loaded.recentNext[s] = data.readInt();
+                if (loaded.recentCount[s] < 0 || loaded.recentCount[s] > WINDOW
+                        || loaded.recentNext[s] < 0 || loaded.recentNext[s] >= WINDOW) {
+                    return;
+                }
+                if (loaded.recentCount[s] > 0) {
+                    loaded.recent[s] = new int[WINDOW];
+                    for (int i = 0; i < loaded.recentCount[s]; i++) {
+                        loaded.recent[s][i] = data.readInt();
+                    }
+                }
+            }
+            summary = loaded;
+        } catch (NoSuchFileException e) {
+            // First run
+        } catch (IOException e) {
+            // Truncated or unreadable snapshot: like an unknown layout, rebuilt from the log
+        }
+    }
+
+    // Applies log records newer than the snapshot and cuts off a torn last record
+    private void replayTail() throws IOException {
+        long size = out.size();
+        long records = size / RECORD;
+        // Sequence numbers grow by one per record, so the first unseen record is found by binary search
+        long low = 0;
+        long high = records;
+        ByteBuffer one = ByteBuffer.allocate(RECORD);
+        while (low < high) {
+            long mid = (low + high) >>> 1;
+            one.clear();
+            out.read(one, mid * RECORD);
+            if (one.getLong(0) <= summary.lastSequence) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        long good = low;
+        ByteBuffer tail = ByteBuffer.allocate((int) Math.min(records - low, Integer.MAX_VALUE / RECORD) * RECORD);
+        out.read(tail, low * RECORD);
+        for (int at = 0; at + RECORD <= tail.capacity(); at += RECORD) {
+            if (!checksumOk(tail, at)) {
+                break;
+            }
+            summary.add(decode(tail, at), zone);
+            good++;
+            sinceSnapshot++;
+        }
+        if (good * RECORD != size) {
+            out.truncate(good * RECORD);
+        }
+        logRecords = good;
+    }
+
+    private void writeSnapshot() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(4096);
+        DataOutputStream data = new DataOutputStream(bytes);
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeInt(WINDOW);
+        data.writeInt(SLOTS);
+        data.writeLong(summary.lastSequence);
+        data.writeLong(summary.lastSolvedDay);
+        data.writeInt(summary.streak);
+        data.writeInt(summary.bestStreak);
+        int used = 0;
+        for (int s = 0; s < SLOTS; s++) {
+            if (summary.games[s] > 0) {
+                used++;
+            }
+        }
+        data.writeInt(used);
+        for (int s = 0; s < SLOTS; s++) {
+            if (summary.games[s] == 0) {
+                continue;
+            }
+            data.writeInt(s);
+            data.writeInt(summary.games[s]);
+            data.writeInt(summary.solved[s]);
+            data.writeInt(summary.bestMillis[s]);
+            data.writeInt(summary.recentCount[s]);
+            data.writeInt(summary.recentNext[s]);
+            for (int i = 0; i < summary.recentCount[s]; i++) {
+                data.writeInt(summary.recent[s][i]);
+            }
+        }
+        out.force(false); // the snapshot must never be ahead of the log on disk
+        replace(snapshot, bytes.toByteArray());
+        sinceSnapshot = 0;
+    }
+
+    private void compact() throws IOException {
+        writeSnapshot();
+        int keep = (int) Math.min(KEEP_RECENT, logRecords);
+        ByteBuffer recent = ByteBuffer.allocate(keep * RECORD);
+        out.read(recent, (logRecords - keep) * RECORD);
+        replace(log, recent.array());
+        // The open channel still points at the replaced file
+        out.close();
+        out = openLog();
+        logRecords = keep;
+    }
+
+    private FileChannel openLog() throws IOException {
+        return FileChannel.open(log, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    private static void replace(Path file, byte[] content) throws IOException {
+        Path temp = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName().toString(), ".tmp");
+        Files.write(temp, content);
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private ByteBuffer encode(Game game) {
+        ByteBuffer record = ByteBuffer.allocate(RECORD);
+        record.putLong(game.sequence);
+        record.putLong(game.finishedAt);
+        record.putLong(game.fingerprint);
+        record.putInt(game.solveMillis);
+        record.putShort((short) game.mistakes);
+        record.putShort((short) game.hints);
+        record.put((byte) game.difficulty);
+        record.put((byte) game.variant.ordinal());
+        record.put((byte) game.side);
+        record.put((byte) (game.solved ? 1 : 0));
+        crc.reset();
+        crc.update(record.array(), 0, RECORD - 4);
+        record.putInt((int) crc.getValue());
+        return record.flip();
+    }
+
+    private boolean checksumOk(ByteBuffer buffer, int at) {
+        crc.reset();
+        crc.update(buffer.array(), at, RECORD - 4);
+        return buffer.getInt(at + RECORD - 4) == (int) crc.getValue();
+    }
+
+    private static Game decode(ByteBuffer buffer, int at) {
+        return new Game(buffer.getLong(at), buffer.getLong(at + 8), buffer.getLong(at + 16), buffer.getInt(at + 24),
+                buffer.getShort(at + 28), buffer.getShort(at + 30), buffer.get(at + 32),
+                VARIANTS[buffer.get(at + 33)], buffer.get(at + 34) & 0xFF, buffer.get(at + 35) != 0);
+    }
+}
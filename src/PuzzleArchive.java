@@ -0,0 +1,465 @@
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+// Compact archive of classic 9x9 puzzles with their solutions and optional grades:
+//   java PuzzleArchive pack <file> <count> [difficulty=2] [seed]   writes generated puzzles
+//   java PuzzleArchive dump <file> [first=0] [count=all]             prints givens and solution lines
+//   java PuzzleArchive bench <file>                                  times a full sequential read
+//
+// Each record is byte aligned: a length byte, a grade byte (0 = none, else ordinal + 1), then a
+// little-endian bit stream with the 81-bit givens mask and the solution.
+// The solution is filled in row by row, and each cell stores the index of its value among the
+// candidates its row, column and box still allow. Forced cells cost nothing. The indices are
+// packed as mixed-radix numbers of up to 63 bits, so a solution takes about 80 bits instead of
+// 81 nibbles. A record comes to 22 to 24 bytes instead of two 82-character lines.
+// Records go into blocks of RECORDS_PER_BLOCK. A block is deflated when that makes it smaller,
+// and an index of block offsets at the end of the file lets a reader seek to any record.
+// The bit streams are close to incompressible, so deflate mostly squeezes the header bytes.
+public final class PuzzleArchive {
+    static final int MAGIC = 0x53444B41; // "SDKA"
+    static final int VERSION = 1;
+    static final int RECORDS_PER_BLOCK = 4096;
+
+    private static final int N = 81;
+    private static final int MAX_RECORD = 64;  // bytes; the worst case is under 48
+    private static final long[] CHUNK_LIMITS = new long[10];  // a chunk's radix may grow by count while <= this
+    private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    static {
+        for (int count = 1; count <= 9; count++) {
+            CHUNK_LIMITS[count] = Long.MAX_VALUE / count;
+        }
+    }
+    private static final PuzzleValidator.Grade[] GRADES = PuzzleValidator.Grade.values();
+
+    private PuzzleArchive() {
+    }
+
+    // Appends puzzles to a new archive. The index is written by close().
+    public static final class Writer implements Closeable {
+        private final DataOutputStream out;
+        private final byte[] block = new byte[RECORDS_PER_BLOCK * MAX_RECORD];
+        private final byte[] compressed = new byte[block.length + 1024];
+        private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        private final long[] bits = new long[MAX_RECORD / 8];
+        private final int[] box = new int[9];
+        private final int[] row = new int[9];
+        private final int[] col = new int[9];
+        private long[] blockOffsets = new long[16];
+        private int blockCount;
+        private int blockLength;
+        private int blockRecords;
+        private long records;
+        private long offset;
+
+        public Writer(Path file) throws IOException {
+            out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(RECORDS_PER_BLOCK);
+            offset = 12;
+        }
+
+        public void write(SudokuPuzzle puzzle, PuzzleValidator.Grade grade) throws IOException {
+            write(puzzle.givens, puzzle.solution, grade);
+        }
+
+        // grade may be null
+        public void write(int[] givens, int[] solution, PuzzleValidator.Grade grade) throws IOException {
+            if (givens.length != N || solution.length != N) {
+                throw new IllegalArgumentException("Only 9x9 puzzles can be archived");
+            }
+            Arrays.fill(bits, 0);
+            // Bits 0-15 are the length and grade bytes, the givens mask follows
+            for (int cell = 0; cell < N; cell++) {
+                if (givens[cell] != 0) {
+                    if (givens[cell] != solution[cell]) {
+                        throw new IllegalArgumentException("Given at cell " + cell + " does not match the solution");
+                    }
+                    int pos = 16 + cell;
+                    bits[pos >>> 6] |= 1L << (pos & 63);
+                }
+            }
+            int pos = encodeSolution(solution, 16 + N);
+
+            int length = (pos + 7) >>> 3;
+            bits[0] |= length | (long) (grade == null ? 0 : grade.ordinal() + 1) << 8;
+            if (blockRecords == RECORDS_PER_BLOCK) {
+                flushBlock();
+            }
+            for (int i = 0; i < length; i++) {
+                block[blockLength++] = (byte) (bits[i >>> 3] >>> ((i & 7) << 3));
+            }
+            blockRecords++;
+            records++;
+        }
+
+        public long size() {
+            return records;
+        }
+
+        private int encodeSolution(int[] solution, int pos) {
+            for (int i = 0; i < 9; i++) {
+                row[i] = 0;
+                col[i] = 0;
+                box[i] = 0;
+            }
+            long value = 0;
+            long radix = 1;
+            for (int cell = 0; cell < N; cell++) {
+                int v = solution[cell];
+                if (v < 1 || v > 9) {
+                    throw new IllegalArgumentException("Solution has value " + v + " at cell " + cell);
+                }
+                int r = IterativeSolver.ROW[cell];
+                int c = IterativeSolver.COL[cell];
+                int b = IterativeSolver.BOX[cell];
+                int bit = 1 << (v - 1);
+                int cand = 0x1FF & ~(row[r] | col[c] | box[b]);
+                if ((cand & bit) == 0) {
+                    throw new IllegalArgumentException("Solution breaks the rules at cell " + cell);
+                }
+                int count = Integer.bitCount(cand);
+                if (count > 1) {
+                    if (radix > CHUNK_LIMITS[count]) {
+                        put(value, 63, pos);
+                        pos += 63;
+                        value = 0;
+                        radix = 1;
+                    }
+                    value += Integer.bitCount(cand & (bit - 1)) * radix;
+                    radix *= count;
+                }
+                row[r] |= bit;
+                col[c] |= bit;
+                box[b] |= bit;
+            }
+            // The last chunk only needs as many bits as its radix; the reader takes the rest of the record
+            int width = 64 - Long.numberOfLeadingZeros(radix - 1);
+            put(value, width, pos);
+            return pos + width;
+        }
+
+        private void put(long value, int width, int pos) {
+            if (width == 0) {
+                return;
+            }
+            int word = pos >>> 6;
+            int shift = pos & 63;
+            bits[word] |= value << shift;
+            if (shift + width > 64) {
+                bits[word + 1] |= value >>> (64 - shift);
+            }
+        }
+
+        private void flushBlock() throws IOException {
+            if (blockRecords == 0) {
+                return;
+            }
+            deflater.reset();
+            deflater.setInput(block, 0, blockLength);
+            deflater.finish();
+            int stored = deflater.deflate(compressed);
+            boolean deflated = deflater.finished() && stored < blockLength;
+            if (blockCount == blockOffsets.length) {
+                blockOffsets = Arrays.copyOf(blockOffsets, blockCount * 2);
+            }
+            blockOffsets[blockCount++] = offset;
+            out.writeInt(blockLength);
+            out.writeInt(deflated ? stored : -1);
+            if (deflated) {
+                out.write(compressed, 0, stored);
+            } else {
+                out.write(block, 0, blockLength);
+                stored = blockLength;
+            }
+            offset += 8 + stored;
+            blockLength = 0;
+            blockRecords = 0;
+        }
+
+        @Override
+        public void close() throws IOException {
+            flushBlock();
+            long indexOffset = offset;
+            out.writeLong(records);
+            out.writeInt(blockCount);
+            for (int i = 0; i < blockCount; i++) {
+                out.writeLong(blockOffsets[i]);
+            }
+            out.writeLong(indexOffset);
+            out.writeInt(MAGIC);
+            out.close();
+            deflater.end();
+        }
+    }
+
+    // Reads an archive sequentially from any record
+    public static final class Reader implements Closeable {
+        private final FileChannel channel;
+        private final long records;
+        private final long[] blockOffsets;
+        private final Inflater inflater = new Inflater();
+        private final byte[] block = new byte[RECORDS_PER_BLOCK * MAX_RECORD + 16]; // padded for whole-long reads
+        private final int[] box = new int[9];
+        private final int[] row = new int[9];
+        private final int[] col = new int[9];
+        private ByteBuffer stored = ByteBuffer.allocate(0);
+        private long next;        // index of the record next() returns
+        private int blockIndex = -1;
+        private int blockPos;
+        private PuzzleValidator.Grade grade;
+
+        public Reader(Path file) throws IOException {
+            channel = FileChannel.open(file, StandardOpenOption.READ);
+            ByteBuffer header = read(0, 12);
+            if (header.getInt() != MAGIC || header.getInt() != VERSION || header.getInt() != RECORDS_PER_BLOCK) {
+                channel.close();
+                throw new IOException("Not a puzzle archive: " + file);
+            }
+            ByteBuffer tail = read(channel.size() - 12, 12);
+            long indexOffset = tail.getLong();
+            if (tail.getInt() != MAGIC) {
+                channel.close();
+                throw new IOException("Puzzle archive has no index (was it closed?): " + file);
+            }
+            ByteBuffer index = read(indexOffset, 12);
+            records = index.getLong();
+            blockOffsets = new long[index.getInt()];
+            ByteBuffer offsets = read(indexOffset + 12, blockOffsets.length * 8);
+            for (int i = 0; i < blockOffsets.length; i++) {
+                blockOffsets[i] = offsets.getLong();
+            }
+        }
+
+        public long size() {
+            return records;
+        }
+
+        // Positions the reader so next() returns record `index`
+        public void seek(long index) throws IOException {
+            if (index < 0 || index > records) {
+                throw new IndexOutOfBoundsException("Record " + index + " of " + records);
+            }
+            next = index;
+            if (index == records) {
+                return;
+            }
+            int target = (int) (index / RECORDS_PER_BLOCK);
+            if (target != blockIndex) {
+                loadBlock(target);
+            }
+            // Records vary in length, so walk to the wanted one inside the block
+            blockPos = 0;
+            for (long skip = index - (long) target * RECORDS_PER_BLOCK; skip > 0; skip--) {
+                blockPos += block[blockPos] & 0xFF;
+            }
+        }
+
+        // Decodes the next record into the given arrays; returns false at the end of the archive
+        public boolean next(int[] givens, int[] solution) throws IOException {
+            if (next >= records) {
+                return false;
+            }
+            int target = (int) (next / RECORDS_PER_BLOCK);
+            if (target != blockIndex) {
+                loadBlock(target);
+            }
+            int length = block[blockPos] & 0xFF;
+            int g = block[blockPos + 1];
+            grade = g == 0 ? null : GRADES[g - 1];
+            decodeSolution(solution, 16 + N, length * 8);
+            long low = get(16, 63);        // cells 0-62
+            long high = get(16 + 63, 18);  // cells 63-80
+            for (int cell = 0; cell < 63; cell++) {
+                givens[cell] = (low >>> cell & 1) != 0 ? solution[cell] : 0;
+            }
+            for (int cell = 63; cell < N; cell++) {
+                givens[cell] = (high >>> (cell - 63) & 1) != 0 ? solution[cell] : 0;
+            }
+            blockPos += length;
+            next++;
+            return true;
+        }
+
+        // Grade of the record last returned by next(), or null if it has none
+        public PuzzleValidator.Grade grade() {
+            return grade;
+        }
+
+        private void decodeSolution(int[] solution, int pos, int end) {
+            for (int i = 0; i < 9; i++) {
+                row[i] = 0;
+                col[i] = 0;
+                box[i] = 0;
+            }
+            long value = 0;
+            long radix = 1;   // radix of the chunk so far, tracked exactly as the writer did
+            boolean loaded = false;
+            for (int cell = 0; cell < N; cell++) {
+                int r = IterativeSolver.ROW[cell];
+                int c = IterativeSolver.COL[cell];
+                int b = IterativeSolver.BOX[cell];
+                int cand = 0x1FF & ~(row[r] | col[c] | box[b]);
+                int count = Integer.bitCount(cand);
+                int index = 0;
+                if (count > 1) {
+                    if (!loaded || radix > CHUNK_LIMITS[count]) {
+                        int width = Math.min(63, end - pos);
+                        value = get(pos, width);
+                        pos += width;
+                        radix = 1;
+                        loaded = true;
+                    }
+                    index = (int) (value % count);
+                    value /= count;
+                    radix *= count;
+                }
+                for (int k = 0; k < index; k++) {
+                    cand &= cand - 1;
+                }
+                int bit = cand & -cand;
+                solution[cell] = Integer.numberOfTrailingZeros(bit) + 1;
+                row[r] |= bit;
+                col[c] |= bit;
+                box[b] |= bit;
+            }
+        }
+
+        // `width` bits at bit `pos` of the current record, read as one little-endian long from the block
+        private long get(int pos, int width) {
+            if (width == 0) {
+                return 0;
+            }
+            int at = blockPos + (pos >>> 3);
+            int shift = pos & 7;
+            long value = (long) LONGS.get(block, at) >>> shift;
+            if (shift + width > 64) {
+                value |= (block[at + 8] & 0xFFL) << (64 - shift);
+            }
+            return value & (-1L >>> (64 - width));
+        }
+
+        private void loadBlock(int index) throws IOException {
+            ByteBuffer header = read(blockOffsets[index], 8);
+            int rawLength = header.getInt();
+            int storedLength = header.getInt();
+            if (storedLength < 0) {
+                read(blockOffsets[index] + 8, rawLength).get(block, 0, rawLength);
+            } else {
+                ByteBuffer data = read(blockOffsets[index] + 8, storedLength);
+                inflater.reset();
+                inflater.setInput(data);
+                try {
+                    if (inflater.inflate(block, 0, rawLength) != rawLength) {
+                        throw new IOException("Corrupt block " + index);
+                    }
+                } catch (DataFormatException e) {
+                    throw new IOException("Corrupt block " + index, e);
+                }
+            }
+            blockIndex = index;
+            blockPos = 0;
+        }
+
+        private ByteBuffer read(long position, int length) throws IOException {
+            if (stored.capacity() < length) {
+                stored = ByteBuffer.allocate(Math.max(length, stored.capacity() * 2));
+            }
+            stored.clear().limit(length);
+            while (stored.hasRemaining()) {
+                if (channel.read(stored, position + stored.position()) < 0) {
+                    throw new IOException("Unexpected end of puzzle archive");
+                }
+            }
+            return stored.flip().order(ByteOrder.BIG_ENDIAN);
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+            inflater.end();
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("usage: PuzzleArchive pack <file> <count> [difficulty] [seed]"
+                    + " | dump <file> [first] [count] | bench <file>");
+            System.exit(2);
+        }
+        Path file = Paths.get(args[1]);
+        switch (args[0]) {
+            case "pack": {
+                int count = Integer.parseInt(args[2]);
+                int difficulty = args.length > 3 ? Integer.parseInt(args[3]) : 2;
+                SudokuGenerator generator = args.length > 4
+                        ? new SudokuGenerator(new Random(Long.parseLong(args[4]))) : new SudokuGenerator();
+                try (Writer writer = new Writer(file)) {
+                    for (int i = 0; i < count; i++) {
+                        SudokuPuzzle puzzle = generator.generate(GridSpec.Variant.CLASSIC, 3, difficulty);
+                        PuzzleValidator.Report report = PuzzleValidator.validate(puzzle.spec, puzzle.givens);
+                        writer.write(puzzle, report.grade);
+                    }
+                }
+                System.out.printf("%d puzzles, %d bytes (%.1f per puzzle)%n",
+                        count, Files.size(file), (double) Files.size(file) / count);
+                break;
+            }
+            case "dump": {
+                try (Reader reader = new Reader(file)) {
+                    long first = args.length > 2 ? Long.parseLong(args[2]) : 0;
+                    long count = args.length > 3 ? Long.parseLong(args[3]) : reader.size() - first;
+                    int[] givens = new int[N];
+                    int[] solution = new int[N];
+                    reader.seek(first);
+                    for (long i = 0; i < count && reader.next(givens, solution); i++) {
+                        PuzzleValidator.Grade grade = reader.grade();
+                        System.out.println(PuzzleParser.format(givens) + " " + PuzzleParser.format(solution)
+                                + (grade == null ? "" : " " + grade.label));
+                    }
+                }
+                break;
+            }
+            case "bench": {
+                try (Reader reader = new Reader(file)) {
+                    int[] givens = new int[N];
+                    int[] solution = new int[N];
+                    for (int round = 0; round < 5; round++) {
+                        long start = System.nanoTime();
+                        long checksum = 0;
+                        reader.seek(0);
+                        while (reader.next(givens, solution)) {
+                            checksum += solution[80] + givens[0];
+                        }
+                        double seconds = (System.nanoTime() - start) / 1e9;
+                        System.out.printf("%d puzzles in %.3f s: %.0f puzzles/s, %.0f MB/s archive, "
+                                        + "%.0f MB/s as text (checksum %d)%n",
+                                reader.size(), seconds, reader.size() / seconds, Files.size(file) / seconds / 1e6,
+                                reader.size() * 164 / seconds / 1e6, checksum);
+                    }
+                }
+                break;
+            }
+            default:
+                System.err.println("Unknown command " + args[0]);
+                System.exit(2);
+        }
+    }
+}
@@ -0,0 +1,273 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// Fixed 9x9 puzzle sets for benchmarks and solver cross-checks.
+// Every entry is an 81-character string with '.' for empty cells.
+public final class PuzzleCorpus {
+    // Well-known hard or minimal (17-clue) puzzles, all with a unique solution
+    public static final String[] HARD = {
+            "4.....8.5.3..........7......2.....6.....8.4......1.......6.3.7.5..2.....1.4......",
+            "52...6.........7.13...........4..8..6......5...........418.........3..2...87.....",
+            "6.....8.3.4.7.................5.4.7.3..2.....1.6.......2.....5.....8.6......1....",
+            "48.3............71.2.......7.5....6....2..8.............1.76...3.....4......5....",
+            "....14....3....2...7..........9...3.6.1.............8.2.....1.4....5.6.....7.8...",
+            "8..........36......7..9.2...5...7.......457.....1...3...1....68..85...1..9....4..",
+            "1....7.9..3..2...8..96..5....53..9...1..8...26....4...3......1..4......7..7...3..",
+            ".......1.4.........2...........5.4.7..8...3....1.9....3..4..2...5.1........8.6...",
+            "6.2.5.........4.3..........43...8....1....2........7..5..27...........81...6.....",
+    };
+
+    // Timing corpus of SolverCheck: the 200 Hard boards that generate(CLASSIC, 3, 2) gave for seed 42
+    // when the performance baseline was introduced. They are checked in, not regenerated, so a
+    // generator change cannot swap the boards under a recorded baseline. Most have several solutions.
+    public static final String[] PINNED = {
+            ".3.........2.....5.5...46........3...4...28678....6.......21..9.....9.3..9....1..",
+            ".......2......5.76...8.2951.....4..9.4.........1.2...5..9......1..6....48......9.",
+            "8..6.7............4..1.83.2...7....1........4.....26...2..7..8.......2....823.1..",
+            ".83.7...9.....5.7....1......9...6.....2.....47..9..5.1......8...2...9.3...7..2...",
+            "1...6..5.7.5...........7...28....6.1........9..67......9.64.5.......3...82...5...",
+            ".1........4..6......7....641..598.3..2......6.5...2....9..........8.92...8.4.....",
+            ".2..7.....17....93.....5..............25.....73.6.1.....52.6.78.71............9..",
+            ".9.4.....5....27....2.3.8..279813............6....4....5.3.......1........7...6..",
+            "4......3......54..3..........7...26.......5.7.4...6...1.2.39...9....1..8......1.9",
+            ".19......5.2...4..7...2.......1.....4.5...7....16.8.....32..9...94....6.....1....",
+            "...3.............4......5..4...8......37..4.18.2..1.....8......1342..8..9.51.....",
+            "...4....5..5..371..7.......7......9.5....81.6.1...9.4.......8.....9..4.....7...6.",
+            "....2.1.........4..8.41........724....6.4..5.724.......7...58....9..........64...",
+            "...1.984.......19.1..2.....2..63...4...89............5.1..6.7..8.............2.6.",
+            "....1......92.6.8....3......6.7.1...934.....8.57.3......1.72..........6.4........",
+            "6...7.9......5.....3...6............3..51...7.....819.........4......3892.4.9.5..",
+            "...9..........8..7...6....57..3....13........5.8..1....87.4..6.4.3.......657.....",
+            "...84.........5...574......1.2.........1..2..93..2..1.4.7.......5...2..4......58.",
+            ".8...2...9.4138..2............7..9...67...2..4...........9...28..9..5...6.8......",
+            "2...6...9..5...16...9.5..4......59.3.2.....56....3...14.....6...7..4.............",
+            ".2..5..........75..5..2......2.............1....138...391.8...4...4...9.....16.3.",
+            "..8................3...7.......1.5.96.78..3.....3.4..6.....86....6.3.2.88..6.....",
+            "..........2..4..6..146.3......28..1.....3.........6.......62.84..5.9..2...2...5..",
+            ".....98.6.....5..4.2....7..2....7...1....2...9.4351.7...3.......9.2.....8........",
+            "85.4.2.........2...6..........14..3.....8...46349.......6.....8....1...2.....4..6",
+            "..5.42.9...4....2....9.............5...4....7...5..2......1.9..2..89..7..9.63....",
+            "..4..89...38..57...9....8.....8..3.....94...............2.......6315...8.7...2...",
+            "........6..5..847...8......1.2....57..7.6..........3.........2.5.....13.9..1.5..8",
+            "..........5..7.3..97.264...1.........97...216.3...14..........77............8.1..",
+            ".........9...5..1.5....9843..9.16...1.............7..17...6...4..8...5...9.....6.",
+            "71..8.9......1....8......6..5....2.......1...6.1.9..3.3...45..9...9........82....",
+            "..4.19.......2........3.1.8..........97.....55.......7......5.196...3.2.4....7.8.",
+            ".......3....3...6.4....72987....4...8....2....5....4.....9..3.2..9.......84.....9",
+            "...9384......7.582.7...4.......42......5.9..44.......1.9.............6.8....2....",
+            "..512...7.6.....2..2..5......8......9..7........53.....1486......6........9..2.4.",
+            "..7...42.....1.3.7...3.7..5.1..4.2...........4.5.....9.........5..42....7.2..1...",
+            "4............9...5....1....8...3....6..8..293..5.4.6..9...6.....6.7...8.5..4.....",
+            ".....98...8....3...19.6.7.4.41.93.5...6...4......4...............8.........68...3",
+            "2....6..88.9...6.5......3......4...94....9.2...2.6.............6...3.....9...425.",
+            ".....96..1....3.245.4....37...2..1..8..3.....6...8..........7.......4.8.9...3....",
+            "8............8.........6...31....62....1...4........8....9378.443.8.........429..",
+            "9..2..4.661...8.53..4...........5..7........82..8.......6539.7.....1.............",
+            "...1........95...7.57..2........3....8.7......3.......5.....9..2.34.9.7...95....1",
+            "7.1.5...29..........2.3....6....9........2.3.8..........5.....83.9..8.5.2.8.....6",
+            "...76......6.......83..5......25.8..62.........58......37..2.9....1.9.4.8........",
+            "...71.29..1..6..8...........39.....48....1.....1...9.31..42..39............6.....",
+            "....1.7....1.7...234....1..1............9.8....9....7..6.1.592........639........",
+            "...8..56.3..259..8.8.....9..5....82....4......3....714.......4....9...........2..",
+            ".3...........6..7.7.........72.....9..5.376..64..8....8.....2...6......1..1...9.7",
+            ".1...9.....3.2...9...6.4..7.9..4...3..1..7.8....3.8.............4.9....13....6...",
+            "..1..524......87..8.791......4.7.....7.......2.65.3......3...84...............1..",
+            "9...........3.......7.4..85..3.9.7..8.5......2.9...8......8.....9.5.....5.1..3.2.",
+            "...56.1.3..9..8..7............9...751.....9...96.75...2.........5.....2..8...2...",
+            "..............6.....94....8....184.3...5........9...61.967...1...2..4.8.....5..3.",
+            "8.4....9...3...6.....3........6.74....1...7.....8.....3......8.1..5..2...267.9...",
+            "......58.95.........6...2......9....8.5.3......2...893.......7...9.8..4....9..62.",
+            "....4...........4..6.7..5.2924.....3...9...7.78..2..5.5.......6......8.......57..",
+            "..8...3.55...........6....88..5......5......37.9.1....245........3.6.8.1.8.......",
+            "..........2..6.45..6.3..8...16........7........8.3...5..1...239.8..1....45.......",
+            "9......5......9....5.......3.7...91..9136....6............3...7..2.4...3..46..5..",
+            "..3..7..65..1.8..9.......15....69.....4.........3..48...9.1..522......7..........",
+            "...29.53....8...26.........3.5.4.2.1.2.15...3.....9.....9..4.....6...3...........",
+            "...572.........9......9.85...........5......6..87...2.82...3......85....59..6.3..",
+            "........627..9....3......7....9.2..8...7....3.......95.98.....4.378..6.9.........",
+            ".........342.1....5.9............16.2........1...5..79.......8.7236..9.....4..3..",
+            ".2...4......7..6.27...2...3.4...38.7.7.8.6.......4.926........................5.8",
+            ".19......4.86...3.6..7.......7......13..5..6.........7.8..4....9......8.7...89...",
+            "43.7.1.....8...6.49.....7.3......2........1.6.....6.........3.7....1....2.5.87...",
+            "4.......3.38....79..78.2.....9....4............6....3.2....685.6.1..9.2..........",
+            "................9........1....4.....38.1...465....3.78.3.5....476..4.35........8.",
+            "78..........397........4.6...4.........8.........49.....7...2...4...31..65.41...8",
+            ".1...4.5.7.9.....6.4...........3..24..1...63...........5.....9........7....42956.",
+            "...75..1.1...9...2...213..99......36......4.....3...9..2...4.8.....2......4......",
+            ".2.5..6..........4.1.4.9..5...3.7.1.6.....8....5.........7..14.....15...3.....5..",
+            "...7....3............691......9...78.48.7.................3..5..825...4.591.4....",
+            ".4........531.......6.2.4..6...9..3....4..2.55..3.7......6.......9...3......3..4.",
+            ".17..465...5..9..73.2..7.......7....6...3...9.........2.....58..3........7.....6.",
+            ".........8....24.1..4.....3..64.5..7.4.................87.1.54.....4......9.761..",
+            "6......2..........3....2.1.........8....1...2..752.14......7.9..42..968..9.......",
+            ".........3....5...2....8.53......64........791.697....7.31...9.....4......2.6....",
+            "7.....9..2.5........92..5.......2...........3..61..7.......8.3.9....4.1..31.2...9",
+            "...3.8.2.......3..3......4.........46.1....7..95....1.....23....6.........4751.8.",
+            "1..6.....6.......8.......6.5.....3.939....847.48.9.....24..96..........5.........",
+            ".2.....8........3...6..4.75.9......6.6...........2..19....6......3...1.761..4...2",
+            "..1....6...2.....9..6..4....8..6194......3.5.6....9....79.....5..............57.4",
+            ".7.39..1....7.4.5..4....7.....5.7...9...86...8.....6........9..6....32.......9...",
+            "....89...........9....71.............6..2.....2.63514...2..3.1....8.2......75..2.",
+            ".6...9.3..2367........4.........3....3..96..2...5.2..9.......583.........8..6....",
+            "...3.8.......7.....6.91.....7.5.....3...2..4...283..91..5.......46..........91...",
+            ".......5.5.18..37.8..5.69........1.2.1....4.........3.2....75..1...8....6........",
+            "....4....2.6.183.......9.....42.69.39....4.5.........8..7.8..............1..6..2.",
+            "....5...8..5......8.2..6..........892......7.......3...2...3.......84162.6...2..3",
+            ".5............4.5.4..6....98.....1..7....1......52...424....5...6..5...1.8..4....",
+            ".2.8....5...2.98.4.9..176.2.5..2...8....5..............3.67....4...............6.",
+            ".69...............85.1.9.......5.....3.81.5.9..7...8....8.2...7..67...3..7.......",
+            ".......6..6.4..7959...1..3.............3.7........1....4...597..93..6...78.......",
+            "7.......2..8......9..28...1..1..6....8915...4..7....15.....85............9...5...",
+            "........4....5..1....2..73.........5.3..2.89...5...3..4....2..3....6.14.2...4....",
+            "....7....2............8.1....8........9..8562.5....9...61....5.....256....2..73..",
+            ".6...15.7.2..6..38........16........3..........1.....3.1.2.4...........2.3.8...19",
+            ".1....4.873.8......94..1...1..4...6..........645.2.9....1..............3....7.2..",
+            ".6.4..3.....2......7....286..237.......8...7.....6....6.....7.8...7.56..7........",
+            "1.....4....2.6.3.....4......61.....45...14.23.............4....6.78.3...2....5...",
+            "...3............3...1....7....86.5....85.4....49...8.7......1.....95.4..39.....8.",
+            "........9418...6.....3..14....5.......4....65.8..1.7.....1..32.8..6....7.........",
+            ".2..51...5.......81..........9.....4...7.2..5..298......7.4....64...9..3....6....",
+            "...37.....2.............1....5.1...2.4...3.....1.2.....94....1665.4......7.68....",
+            "8..6..1............3..4.....9.8..35.31.4.5.......7............114.3...98......2..",
+            "3.....7..56.973....72......9.1..2...............8........3..5.2...5.1...2.3...9..",
+            "......12....1..4...9.5.....93...62.1....3.6........98....4....9.8...97.......1...",
+            ".....3........6..4.7..95..2..9.1.4.6.4.....3..15.4.7....3.6.......5..8...........",
+            "...1.6..8....24......7...1.5.347....6.7......294........8.......32...8...4.......",
+            ".....3....1..4.5.3....8......74..61....8..23......2....8..5......4...3...593.....",
+            "...316..............398.......7418..2...9........63.5...6.....4.........3..6.8.9.",
+            ".....5.3...6.79...2...86.7.......7...5..............1.....435...2...1...5.48..3..",
+            "9............9...2.......9..7...183....5.7.2..2.9.4........29.....31...7...65....",
+            "4......6....5......6.21..5...96.7..1...........8...5...3.4.96......2.....92....4.",
+            "...7.........3....94....6...6......3.586...2...429.....7....2.9.....9.....2..7..6",
+            "...4.876.....57.............79.....4..61........3...976..5...7...78.........9.4..",
+            ".5.18..............9...2...5..6.........7..32...8....6...25..6.......3...7.36.94.",
+            "........8.4..9.1.6......4...7...4.8.482..5.....68..2...3........64..........2...4",
+            "......73.9......82......95..9.................3.9..26.8436.9.......24.......58...",
+            ".......6.7..2.1.3......6..4.......4.6............4..97...8...7..2..1.8..5.....123",
+            ".......6....1......3.......86.9.743...524............5.89.12.4.7......8.1........",
+            "......976.8..4......27..4.1.5..............976....9.4.84.......1......2........34",
+            "2...........2......4.......6.41.578..8.7..5....3..81.......267...96.....3........",
+            "...5..9..62...8.5...........5....31.8.............7.....3.....6..8....311629....4",
+            ".....3.......2.1.42...4.......3...1...5.1.....12.........4...8...98..5.7...7.26..",
+            ".9................1..84.9..7.4.....8.1..3..5....49......59..7.69.......22......4.",
+            "...25....51.9....2..4.3...74..1...7......9...1......6.9..8.5..6...........5....1.",
+            ".....9.........1....8.......756.38..14...59....3......3.........2.7.43..8.49.....",
+            "...1.2....7..54.6..6...7..........3.....25....2....587......8.....58...6...2...9.",
+            "..9............3217.............2......8.9.3..72....865..4.6.....4.....89..1....4",
+            "........22.....59...752...1......2.535..6...78.1.......82......5.............2.5.",
+            "..3............3..........1...2.......41...6..8..4....83....296.92.1...5..6..21..",
+            ".8.................71.......24..7...9..6.......62.....748...52.215...63..6.......",
+            "..1...4...6.34...2...5.9..1.95....2.....57....87....5.8...........4..6.......5...",
+            "..3......1.8..7..9....3..5........7.37...8...4.....918.8....1..6.5......9..7.....",
+            ".1...7...26.34..7...8...134..3.........4935.......8....4.......8.............4..6",
+            "..7....3.2.4..7...3.8.962..9..........6....9.8..954....8.43..................5...",
+            ".2..4.......17....4...8....1..52..3738..........9....881..9.............6...5...4",
+            "28.9...............5....8......674.5....3..6..6..542...4......8.16..8.......9....",
+            "5......9..7.....53.3..57.21...2..7.....8.......7.....27.45.2...3........8........",
+            ".3.9...5....2..3.7.2..3.4..1..6.........7..2.........49..1...4.3.......9....9..6.",
+            "........9......4..3.5....2.89..57..1......7...2.4..956......3....2.....4....7...5",
+            "......6..8.1...2.7..3.12......39......52...6.......81...8...124..........6......5",
+            "..2....6.8.5..6.4..6....85.....2...............4......6..1..4.2..1.5.9.8....9.5..",
+            "...8.2..3...3....8....7.62.9................11.3..5.......9.8.......8....8742..9.",
+            ".......7....2.96...96....5..1..2....2.38.4...4...1..8.............69.....5...81..",
+            "....9...1...4.......4.85...65782...4..1.......32.1.......5.......3...69..7.......",
+            ".6..8....8.....75.5.7.....8.48.29.3.............3...2..1.4..........5....7..6.5..",
+            ".918....58......6......4....5......9...9.........5.4.....7...435..4..6..1..6.9...",
+            "......2..8.9.5...6..........8..73.95...5.......5...3...9..24....16...8.....6.9...",
+            "41...83...86....1...2.6......4....7..37...15..58...........4...8.............1..4",
+            "69....8......5..1..3............8...8...4...5.1..2..9...41.5..72........1.7....4.",
+            ".7.85...6.....9.........7.......486.......2....65.....8.....1.4...2.8.3.5.3...6..",
+            "..5..74.1..4..5.9.......5.7.........8.274..6........4.....2..5...........8.5..91.",
+            ".......4......4.......1.8.3.3...2...7.2.....6..16....9.6.2..178..8.........45....",
+            ".8.3.6...74..9..8...52...9.....6..........2.68....5........7....9..1...71.6......",
+            "..9...5.7....5........8....6..3.17..3...7......7.2.39.....49...............23.85.",
+            "..2..7...........4.7...8........4.3..6........3481..2....2.9....4...5..2...1.34..",
+            "....9...16................65........4..53....37.6...4.2...6.5..1...7..2...42..6..",
+            ".......9..97.6....4..3....51...87..6...4.....2.9..5.....2..64..........8.....45..",
+            "28.9.13.515......9....5.1.....2...7.....6.......1..2..5....4.....93.....3........",
+            "..3..2................839.........29..59.8.....12........521...1...7.4...62...1..",
+            ".92.....33...4........3297...1.............3...7........921.36....9.....4.3...5..",
+            "....1..........75842...791.1............74.3....1..86..4.....8........7..7.4.....",
+            "2..7.......3.56....8.....5.4....86........4...9.......7.2....4.3.8...26.9......8.",
+            "........46......2........7.7...2.6..2...19.....8.4..1.....57.....5..6.9.8..4...5.",
+            "6.2583.7......6......9......2......7....9.8...6.8.1.5...3......1.....3......58...",
+            "..6....9...46.52.328.9......3....6......83...8.27.6.1......................3.9...",
+            "92..68...7.6.3.....5.....67..........7......13..6...5..3....1..1.....8......1...6",
+            "4.....3...7.4....19........8..19.........4589.97......16.8..............7.4..9...",
+            ".3.....4........6.29..4.........283..8....9....1......5..7......1....7..6...341.5",
+            "..4...........2954....3.7...4962..1.....4...3......8.....4761.........3.........5",
+            "....1....3...5.67.72.6....125...1......2.5.8........266.......4.......3.....7....",
+            ".3..42...29.37....67........8......5.1..3..2.5..2......4.......7..........14..7..",
+            "..569.....6..835.......5....2....7....6.4.2.1.............38...5..1...6.8..9.....",
+            ".1.....38.723.6....5..8.....9.............31...1....4....75..86........3.....85..",
+            "1.2.748.....2....7....9..2.............4...78......53.........69..6.1.8...6....4.",
+            "......283.32......4.......5.6.......3179.....5..6..31.1...4..3...3..............6",
+            "....8...7..1..7......1..6.........8.2..51.3.........1...2.7..6.7...3.5..6....5.7.",
+            "....2....1....6.38....1..2.7......83...56..7.6.2........81..3...7..4........8....",
+            "1.8.4.5..4.5.....36...8...9.8...79.47..4................1......86..7.2...........",
+            "....91...9..546718..6....5..7..5..3..........6.....8...6...5.....9...........7..4",
+            "...8.7...83....2...7..134.........7.................5..964.8...128........7..29..",
+            "5.61.....17.5......38.........68.5...1...5..........4..8..........9..41...1.5..3.",
+            ".1.6.42..3.....7..4.2....8......8.16.8..62............5......9....9.....7....5..4",
+            ".7.......9.....1...28....9......7.3.7.........8..4......6.382.9..7..98...19......",
+            ".....3....9..1.7...1.............9.5.83......5...3....64....8......2.56....3864..",
+            "..328............6....9..8.8.....7..2..6.4...9..7.8....2..4.9......6945..........",
+            "..4.3....1..9.5.......87....5..61...4.6..92....23..5........82...............89..",
+            ".4.......63.8...5..5...4.......958........3........1.....93.5.....1.72....15..4..",
+            "..9.........6....5..5..3...12......8.9..........3.9...7.....81....7....9.34...276",
+            "5..2.46....4.....1.9.......1...4.76.9....8......31......9.8.1.6...........7.2....",
+            ".3....26.....4....1..6.......398..........5......673......1.....9.8....5.71.5.8..",
+            ".....6...9....8............2...1.5....9......564...3.1.....52.3....23..9.52..1...",
+            "147.95....53...1.4..........98.....1...5....6............6...........48.58.....79",
+            ".1.....4...6.4.92..........92.........8.6..7.4.7......59....2......9..8...26...9.",
+            "..2..1........67..7......81....2....324....9.61.4..........2....85...9..26.......",
+    };
+
+    // Defeats a row-by-row backtracking search (millions of nodes for ReferenceSolver)
+    public static final String ANTI_BRUTE_FORCE =
+            "..............3.85..1.2.......5.7.....4...1...9.......5......73..2.1........4...9";
+
+    private PuzzleCorpus() {
+    }
+
+    public static int[] cells(String puzzle) {
+        return PuzzleParser.parse(puzzle);
+    }
+
+    public static List<int[]> hard() {
+        return cells(HARD);
+    }
+
+    public static List<int[]> pinned() {
+        return cells(PINNED);
+    }
+
+    private static List<int[]> cells(String[] puzzles) {
+        List<int[]> list = new ArrayList<>(puzzles.length);
+        for (String puzzle : puzzles) {
+            list.add(cells(puzzle));
+        }
+        return list;
+    }
+
+    // Reproducible generator output: count classic 9x9 puzzles of the given difficulty
+    public static List<int[]> generated(long seed, int count, int difficulty) {
+        SudokuGenerator generator = new SudokuGenerator(new Random(seed));
+        List<int[]> list = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            list.add(generator.generate(GridSpec.Variant.CLASSIC, 3, difficulty).givens);
+        }
+        return list;
+    }
+
+    // Like generated(), but every puzzle has exactly one solution
+    public static List<int[]> generatedUnique(long seed, int count, int difficulty) {
+        SudokuGenerator generator = new SudokuGenerator(new Random(seed));
+        List<int[]> list = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            list.add(generator.generateUnique(difficulty).givens);
+        }
+        return list;
+    }
+}
@@ -0,0 +1,146 @@
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+// Load generator for PuzzleServer that runs entirely on this machine:
+//   java PuzzleLoadClient [clients=64] [seconds=10] [port=0]
+// Port 0 (the default) or a port with nothing listening starts an embedded server first.
+// Each client is a virtual thread with its own keep-alive connection that sends requests back
+// to back: pooled generate, solve and validate calls on a fixed set of generated unique puzzles,
+// picked at random.
+// It speaks just enough raw HTTP/1.1 to stay cheap, so the server is what gets measured.
+// Prints throughput and latency percentiles.
+public final class PuzzleLoadClient {
+    private static final long WARMUP_NANOS = 3_000_000_000L;
+
+    private PuzzleLoadClient() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int port = args.length > 2 ? Integer.parseInt(args[2]) : 0;
+
+        PuzzleServer embedded = null;
+        if (port == 0 || !reachable(port)) {
+            embedded = new PuzzleServer(port, 256);
+            embedded.start();
+            port = embedded.port();
+            System.out.println("Started an embedded server on port " + port);
+        }
+
+        List<byte[]> requests = new ArrayList<>();
+        for (String difficulty : new String[] {"easy", "medium", "hard"}) {
+            requests.add(request("/generate?difficulty=" + difficulty));
+        }
+        for (int[] puzzle : PuzzleCorpus.generatedUnique(42, 64, 1)) {
+            String text = PuzzleParser.format(puzzle);
+            requests.add(request("/solve?puzzle=" + text));
+            requests.add(request("/validate?puzzle=" + text));
+        }
+
+        Metrics.Histogram latency = Metrics.histogram("loadclient.latency");
+        LongAdder errors = new LongAdder();
+        // Lets the server's JIT and its puzzle pool settle before measuring
+        run(port, requests, clients, System.nanoTime() + WARMUP_NANOS, null, errors);
+        errors.reset();
+
+        long start = System.nanoTime();
+        run(port, requests, clients, start + seconds * 1_000_000_000L, latency, errors);
+        double elapsed = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("%d clients, %.1f s: %d requests, %.0f req/s, %d errors%n",
+                clients, elapsed, latency.count(), latency.count() / elapsed, errors.sum());
+        System.out.printf("latency p50 %.1f us, p99 %.1f us, p99.9 %.1f us, max %.1f us%n",
+                latency.percentile(0.50) / 1000.0, latency.percentile(0.99) / 1000.0,
+                latency.percentile(0.999) / 1000.0, latency.max() / 1000.0);
+        if (embedded != null) {
+            embedded.stop();
+        }
+    }
+
+    private static void run(int port, List<byte[]> requests, int clients, long deadline,
+                            Metrics.Histogram latency, LongAdder errors) throws InterruptedException {
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < clients; i++) {
+            threads.add(Thread.ofVirtual().start(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (System.nanoTime() - deadline < 0) {
+                    try (Socket socket = new Socket("localhost", port)) {
+                        socket.setTcpNoDelay(true);
+                        OutputStream out = socket.getOutputStream();
+                        InputStream in = new BufferedInputStream(socket.getInputStream());
+                        while (System.nanoTime() - deadline < 0) {
+                            long sent = System.nanoTime();
+                            out.write(requests.get(random.nextInt(requests.size())));
+                            out.flush();
+                            if (readResponse(in) != 200) {
+                                errors.increment();
+                            }
+                            if (latency != null) {
+                                latency.recordSince(sent);
+                            }
+                        }
+                    } catch (IOException e) {
+                        // Counted, then the client reconnects
+                        errors.increment();
+                    }
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+    }
+
+    private static byte[] request(String path) {
+        return ("GET " + path + " HTTP/1.1\r\nHost: localhost\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+    }
+
+    // Reads one response (status line, headers, Content-Length body) and returns its status code
+    private static int readResponse(InputStream in) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int status = -1;
+        int length = 0;
+        while (true) {
+            int c = in.read();
+            if (c < 0) {
+                throw new IOException("connection closed");
+            }
+            if (c != '\n') {
+                line.append((char) c);
+                continue;
+            }
+            String header = line.toString().trim();
+            line.setLength(0);
+            if (header.isEmpty()) {
+                break;
+            }
+            if (status < 0) {
+                status = Integer.parseInt(header.split(" ")[1]);
+            } else if (header.regionMatches(true, 0, "Content-Length:", 0, 15)) {
+                length = Integer.parseInt(header.substring(15).trim());
+            }
+        }
+        if (in.readNBytes(length).length != length) {
+            throw new IOException("truncated body");
+        }
+        return status;
+    }
+
+    private static boolean reachable(int port) {
+        try {
+            new Socket("localhost", port).close();
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+// Reads 9x9 puzzles written by other programs.
+// Accepted layouts:
+//  - one line of 81 cells, e.g. "4.....8.5.3......"
+//  - SadMan .sdk files: optional "#" metadata lines, then 9 rows of 9 cells
+//  - Simple Sudoku .ss files: rows like "..4|...|..." with "-----------" separator lines
+//  - grids with "---+---+---" separator lines
+// Digits 1-9 are givens; '.', '0', '-', '_', '*', 'x' and 'X' mark empty cells.
+// Spaces, tabs and '|' are ignored. Input with more or fewer than 81 cells is rejected.
+public final class PuzzleParser {
+    public static final int SIZE = 81;
+    private static final int SS_RULE_WIDTH = 11; // 9 cells and the 2 '|' of a .ss row
+
+    private PuzzleParser() {
+    }
+
+    public static int[] parse(String text) {
+        int[] cells = new int[SIZE];
+        int count = 0;
+        String[] lines = text.split("\r?\n|\r");
+        for (int lineNo = 0; lineNo < lines.length; lineNo++) {
+            String line = lines[lineNo].trim();
+            if (line.isEmpty() || line.startsWith("#") || line.startsWith("[") || isSeparator(line)) {
+                continue;
+            }
+            for (int i = 0; i < line.length(); i++) {
+                char ch = line.charAt(i);
+                boolean given = ch >= '1' && ch <= '9';
+                if (given || ch == '.' || ch == '0' || ch == '-' || ch == '_' || ch == '*' || ch == 'x' || ch == 'X') {
+                    if (count == SIZE) {
+                        throw new IllegalArgumentException(
+                                "Expected " + SIZE + " cells but found more on line " + (lineNo + 1));
+                    }
+                    cells[count++] = given ? ch - '0' : 0;
+                } else if (ch != ' ' && ch != '\t' && ch != '|' && ch != '+') {
+                    throw new IllegalArgumentException(
+                            "Unexpected character '" + ch + "' on line " + (lineNo + 1));
+                }
+            }
+        }
+        if (count < SIZE) {
+            throw new IllegalArgumentException("Expected " + SIZE + " cells but found only " + count);
+        }
+        return cells;
+    }
+
+    public static int[] parse(Path file) throws IOException {
+        return parse(new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+    }
+
+    // The 81-character form: digits for givens, '.' for empty cells
+    public static String format(int[] cells) {
+        StringBuilder sb = new StringBuilder(cells.length);
+        for (int v : cells) {
+            sb.append(v == 0 ? '.' : (char) ('0' + v));
+        }
+        return sb.toString();
+    }
+
+    // Lines such as "---+---+---", or the full-width "-----------" rule of .ss files, hold no cells.
+    // A shorter run of '-' or one with '|' in it, e.g. "---|---|---", is a row of empty cells.
+    private static boolean isSeparator(String line) {
+        boolean plus = false;
+        for (int i = 0; i < line.length(); i++) {
+            char ch = line.charAt(i);
+            if (ch == '+') {
+                plus = true;
+            } else if (ch != '-' && ch != '=' && ch != '|' && ch != ' ') {
+                return false;
+            }
+        }
+        return plus || (line.length() == SS_RULE_WIDTH && line.indexOf('|') < 0 && line.indexOf(' ') < 0);
+    }
+}
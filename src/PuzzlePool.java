@@ -0,0 +1,64 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+// Keeps a stock of ready-made classic 9x9 puzzles with a unique solution per difficulty so a request for a random
+// puzzle is a queue poll instead of a generator run. One daemon thread per difficulty tops
+// its queue up; if a queue runs dry the caller generates a puzzle itself.
+public class PuzzlePool {
+    private static final int DIFFICULTIES = 3;
+
+    private final List<BlockingQueue<SudokuPuzzle>> queues = new ArrayList<>(DIFFICULTIES);
+    private final List<Thread> fillers = new ArrayList<>(DIFFICULTIES);
+
+    public PuzzlePool(int capacityPerDifficulty) {
+        // Every queue exists before the first filler starts, so the list never changes under them
+        for (int difficulty = 0; difficulty < DIFFICULTIES; difficulty++) {
+            queues.add(new ArrayBlockingQueue<>(capacityPerDifficulty));
+        }
+        for (int difficulty = 0; difficulty < DIFFICULTIES; difficulty++) {
+            final int d = difficulty;
+            Thread filler = new Thread(() -> fill(d), "puzzle-pool-" + difficulty);
+            filler.setDaemon(true);
+            fillers.add(filler);
+            filler.start();
+        }
+    }
+
+    // difficulty: 0 = Easy, 1 = Medium, 2 = Hard
+    public SudokuPuzzle take(int difficulty) {
+        SudokuPuzzle puzzle = queues.get(difficulty).poll();
+        if (puzzle == null) {
+            // Callers run on short-lived virtual threads, so a generator of their own costs no more
+            // than a cached one would, and shares no Random between threads
+            puzzle = new SudokuGenerator().generateUnique(difficulty);
+        }
+        return puzzle;
+    }
+
+    public int available(int difficulty) {
+        return queues.get(difficulty).size();
+    }
+
+    // Stops the filler threads; take() still works and generates on the caller's thread once the stock is gone
+    public void shutdown() {
+        for (Thread filler : fillers) {
+            filler.interrupt();
+        }
+    }
+
+    private void fill(int difficulty) {
+        SudokuGenerator generator = new SudokuGenerator();
+        BlockingQueue<SudokuPuzzle> queue = queues.get(difficulty);
+        try {
+            while (true) {
+                // put() blocks while the queue is full, so the thread idles once the pool is stocked.
+                // An interrupt during a generator run ends the thread at the next put().
+                queue.put(generator.generateUnique(difficulty));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
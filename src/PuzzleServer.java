@@ -0,0 +1,239 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Serves the classic 9x9 engine over HTTP so web and mobile clients get the same puzzles as the game:
+//   java PuzzleServer [port=8080] [pool=256]     (or: java SudokuGame --server [port] [pool])
+//
+//   GET  /generate?difficulty=easy|medium|hard[&seed=N]  -> givens line, solution line
+//   GET  /solve?puzzle=<81 chars>   (or POST the puzzle)  -> status line, solution line
+//   GET  /validate?puzzle=<81 chars> (or POST the puzzle) -> status and grade line, solution line
+//   GET  /daily[?date=YYYY-MM-DD]                         -> date and grade line, givens line, solution line
+//   GET  /metrics                                         -> engine metrics snapshot
+//
+// Boards are 81-character lines with '.' for empty cells, and every response is plain text.
+// Each request runs on its own virtual thread. Generated puzzles have exactly one solution, and a
+// seeded request always gives the same puzzle.
+// An unseeded request is served from a PuzzlePool that background threads keep filled.
+// Puzzles that /validate has graded are answered by /solve from the shared SolutionCache.
+public final class PuzzleServer {
+    // Generous for 9x9 (hard puzzles solve in well under a millisecond) but stops hostile input
+    private static final Duration SOLVE_TIME_LIMIT = Duration.ofMillis(200);
+    private static final int MAX_BODY = 4096;
+
+    static {
+        // The JDK server writes headers and body separately; with Nagle on, every response then waits
+        // for the client's delayed ACK (~40 ms), which caps a keep-alive connection at ~25 req/s
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final PuzzlePool pool;
+    private final DailyPuzzles daily = new DailyPuzzles(DailyPuzzles.DEFAULT_FILE);
+
+    public PuzzleServer(int port, int poolSize) throws IOException {
+        pool = new PuzzlePool(poolSize);
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        server = HttpServer.create(new InetSocketAddress(port), 1024);
+        server.setExecutor(executor);
+        server.createContext("/generate", handler(this::generate));
+        server.createContext("/solve", handler(this::solve));
+        server.createContext("/validate", handler(this::validate));
+        server.createContext("/daily", handler(this::daily));
+        server.createContext("/metrics", handler(this::metrics));
+        daily.startPrecompute(30);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdown();
+        pool.shutdown();
+    }
+
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        int poolSize = args.length > 1 ? Integer.parseInt(args[1]) : 256;
+        Metrics.registerJmx();
+        PuzzleServer server = new PuzzleServer(port, poolSize);
+        server.start();
+        System.out.println("Puzzle server listening on port " + server.port());
+    }
+
+    private String generate(Map<String, String> params) {
+        int difficulty = parseDifficulty(params.get("difficulty"));
+        String seed = params.get("seed");
+        SudokuPuzzle puzzle;
+        if (seed == null) {
+            puzzle = pool.take(difficulty);
+        } else {
+            long value;
+            try {
+                value = Long.parseLong(seed);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("seed must be a whole number");
+            }
+            puzzle = new SudokuGenerator(new Random(value)).generateUnique(difficulty);
+        }
+        return PuzzleParser.format(puzzle.givens) + "\n" + PuzzleParser.format(puzzle.solution) + "\n";
+    }
+
+    private String solve(Map<String, String> params) {
+        int[] givens = puzzle(params);
+        int[] cached = new int[PuzzleParser.SIZE];
+        if (SolutionCache.SHARED.get(SolutionCache.fingerprint(givens), givens, cached) != null) {
+            return SolveResult.Status.SOLVED + "\n" + PuzzleParser.format(cached) + "\n";
+        }
+        SolveResult result = new IterativeSolver().solve(givens, SolveBudget.ofTimeout(SOLVE_TIME_LIMIT));
+        return result.status + "\n" + (result.hasSolution() ? PuzzleParser.format(result.solution) : "") + "\n";
+    }
+
+    private String validate(Map<String, String> params) {
+        PuzzleValidator.Report report = PuzzleValidator.validate(GridSpec.classic(3), puzzle(params));
+        StringBuilder out = new StringBuilder().append(report.status);
+        if (report.grade != null) {
+            out.append(' ').append(report.grade.label);
+        }
+        if (!report.conflicts.isEmpty()) {
+            out.append(' ');
+            for (int i = 0; i < report.conflicts.size(); i++) {
+                out.append(i == 0 ? "" : ",").append(report.conflicts.get(i));
+            }
+        }
+        out.append('\n');
+        if (report.status == PuzzleValidator.Status.VALID) {
+            out.append(PuzzleParser.format(report.solution));
+        }
+        return out.append('\n').toString();
+    }
+
+    private String daily(Map<String, String> params) {
+        String date = params.get("date");
+        DailyPuzzles.Entry entry;
+        try {
+            entry = daily.get(date == null ? LocalDate.now() : LocalDate.parse(date));
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("date must look like 2024-01-31");
+        }
+        return entry.date + " " + (entry.grade == null ? "-" : entry.grade.label) + "\n"
+                + PuzzleParser.format(entry.puzzle.givens) + "\n" + PuzzleParser.format(entry.puzzle.solution) + "\n";
+    }
+
+    private String metrics(Map<String, String> params) {
+        StringWriter out = new StringWriter();
+        Metrics.writeSnapshot(out);
+        return out.toString();
+    }
+
+    private static int[] puzzle(Map<String, String> params) {
+        String text = params.get("puzzle");
+        if (text == null) {
+            throw new IllegalArgumentException("missing puzzle");
+        }
+        return PuzzleParser.parse(text);
+    }
+
+    private static int parseDifficulty(String text) {
+        if (text == null) {
+            return 1;
+        }
+        switch (text.toLowerCase()) {
+            case "0":
+            case "easy":
+                return 0;
+            case "1":
+            case "medium":
+                return 1;
+            case "2":
+            case "hard":
+                return 2;
+            default:
+                throw new IllegalArgumentException("difficulty must be easy, medium or hard");
+        }
+    }
+
+    private interface Endpoint {
+        String handle(Map<String, String> params);
+    }
+
+    // Wraps an endpoint with parameter parsing and error replies: 400 for bad input, 405 for bad methods
+    private static HttpHandler handler(Endpoint endpoint) {
+        return exchange -> {
+            try (exchange) {
+                String method = exchange.getRequestMethod();
+                int status = 200;
+                String body;
+                if (!method.equals("GET") && !method.equals("POST")) {
+                    status = 405;
+                    body = "use GET or POST\n";
+                } else {
+                    try {
+                        body = endpoint.handle(params(exchange));
+                    } catch (IllegalArgumentException e) {
+                        status = 400;
+                        body = e.getMessage() + "\n";
+                    }
+                }
+                byte[] bytes = body.getBytes(StandardCharsets.US_ASCII);
+                exchange.getResponseHeaders().set("Content-Type", "text/plain");
+                exchange.sendResponseHeaders(status, bytes.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(bytes);
+                }
+            }
+        };
+    }
+
+    // Query parameters, plus the request body of a POST as the puzzle
+    private static Map<String, String> params(HttpExchange exchange) throws IOException {
+        Map<String, String> params = new HashMap<>();
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query != null) {
+            for (String pair : query.split("&")) {
+                int eq = pair.indexOf('=');
+                if (eq > 0) {
+                    params.put(pair.substring(0, eq),
+                            URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+                }
+            }
+        }
+        if (exchange.getRequestMethod().equals("POST")) {
+            try (InputStream in = exchange.getRequestBody()) {
+                byte[] body = in.readNBytes(MAX_BODY + 1);
+                if (body.length > MAX_BODY) {
+                    throw new IllegalArgumentException("request body too large");
+                }
+                if (body.length > 0) {
+                    params.put("puzzle", new String(body, StandardCharsets.US_ASCII));
+                }
+            }
+        }
+        return params;
+    }
+}
@@ -0,0 +1,235 @@
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+// Checks a puzzle that did not come from our generator before it is played:
+// clashing givens, number of solutions (counted up to 2) and a difficulty grade.
+// Everything runs on the bitmask solver with naked/hidden single propagation, which
+// handles even minimal 17-clue puzzles in well under a millisecond once warmed up.
+public final class PuzzleValidator {
+    // Stops pathological inputs (e.g. a nearly empty board with a hidden contradiction) from hanging the caller
+    private static final Duration TIME_LIMIT = Duration.ofMillis(500);
+
+    // Branching needed beyond this many dead ends makes a puzzle Expert rather than Hard. The solver
+    // places every single before it branches, so each dead end already stands for a lot of work:
+    // this splits the generator's trial-and-error puzzles into Hard and Expert about evenly.
+    private static final long EXPERT_BACKTRACKS = 3;
+
+    public enum Grade {
+        EASY("Easy"),      // naked singles alone solve it
+        MEDIUM("Medium"),  // naked and hidden singles solve it
+        HARD("Hard"),      // needs a little trial and error
+        EXPERT("Expert");  // needs a lot of trial and error
+
+        public final String label;
+
+        Grade(String label) {
+            this.label = label;
+        }
+    }
+
+    public enum Status {
+        VALID,          // exactly one solution
+        CONFLICT,       // two givens clash
+        UNSOLVABLE,     // the givens do not clash but cannot be completed
+        MULTIPLE,       // more than one solution
+        UNDECIDED       // the search ran out of time
+    }
+
+    public static final class Report {
+        public final Status status;
+        public final int[] givens;
+        public final int[] solution;      // set for VALID (and the first solution of MULTIPLE)
+        public final List<Integer> conflicts;  // cells involved in clashes
+        public final Grade grade;         // null unless VALID
+        public final long elapsedNanos;
+
+        Report(Status status, int[] givens, int[] solution, List<Integer> conflicts, Grade grade, long elapsedNanos) {
+            this.status = status;
+            this.givens = givens;
+            this.solution = solution;
+            this.conflicts = conflicts;
+            this.grade = grade;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public String describe() {
+            switch (status) {
+                case VALID:
+                    return "Valid puzzle, difficulty " + grade.label;
+                case CONFLICT:
+                    return "The givens break the rules in " + conflicts.size() + " cells";
+                case UNSOLVABLE:
+                    return "This puzzle has no solution";
+                case MULTIPLE:
+                    return "This puzzle has more than one solution";
+                default:
+                    return "The puzzle could not be checked in time";
+            }
+        }
+    }
+
+    private PuzzleValidator() {
+    }
+
+    public static Report validate(GridSpec spec, int[] givens) {
+        return validate(spec, givens, SolveBudget.ofTimeout(TIME_LIMIT));
+    }
+
+    // With the caller's budget instead of TIME_LIMIT. A node budget or no limit gives the same
+    // report on every machine, which a wall-clock limit does not.
+    public static Report validate(GridSpec spec, int[] givens, SolveBudget budget) {
+        long start = System.nanoTime();
+
+        // Classic 9x9 verdicts are cached; a hit means the givens fit a known unique solution
+        boolean cacheable = spec.variant == GridSpec.Variant.CLASSIC && spec.box == 3;
+        long fingerprint = 0;
+        if (cacheable) {
+            fingerprint = SolutionCache.fingerprint(givens);
+            int[] solution = new int[spec.cellCount];
+            Grade grade = SolutionCache.SHARED.get(fingerprint, givens, solution);
+            if (grade != null) {
+                return new Report(Status.VALID, givens, solution, List.of(), grade, System.nanoTime() - start);
+            }
+        }
+
+        List<Integer> conflicts = findConflicts(spec, givens);
+        if (!conflicts.isEmpty()) {
+            return new Report(Status.CONFLICT, givens, null, conflicts, null, System.nanoTime() - start);
+        }
+
+        SolveResult result = new BitmaskSolver(spec).solve(givens, budget);
+        Status status;
+        Grade grade = null;
+        switch (result.status) {
+            case SOLVED:
+                status = Status.VALID;
+                grade = grade(spec, givens, result);
+                if (cacheable) {
+                    SolutionCache.SHARED.put(fingerprint, result.solution, grade);
+                }
+                break;
+            case MULTIPLE:
+                status = Status.MULTIPLE;
+                break;
+            case UNSOLVABLE:
+                status = Status.UNSOLVABLE;
+                break;
+            default:
+                status = Status.UNDECIDED;
+                break;
+        }
+        return new Report(status, givens, result.solution, conflicts, grade, System.nanoTime() - start);
+    }
+
+    // Every given that shares a unit with an equal given
+    static List<Integer> findConflicts(GridSpec spec, int[] givens) {
+        List<Integer> conflicts = new ArrayList<>();
+        boolean[] marked = new boolean[spec.cellCount];
+        for (int cell = 0; cell < spec.cellCount; cell++) {
+            int v = givens[cell];
+            if (v < 0 || v > spec.side) {
+                throw new IllegalArgumentException("Value " + v + " out of range at cell " + cell);
+            }
+            if (v == 0 || marked[cell]) {
+                continue;
+            }
+            for (int peer : spec.peers[cell]) {
+                if (givens[peer] == v) {
+                    marked[cell] = true;
+                    marked[peer] = true;
+                }
+            }
+        }
+        for (int cell = 0; cell < spec.cellCount; cell++) {
+            if (marked[cell]) {
+                conflicts.add(cell);
+            }
+        }
+        return conflicts;
+    }
+
+    private static Grade grade(GridSpec spec, int[] givens, SolveResult result) {
+        if (solvesWithSingles(spec, givens, false)) {
+            return Grade.EASY;
+        }
+        if (solvesWithSingles(spec, givens, true)) {
+            return Grade.MEDIUM;
+        }
+        return result.backtracks <= EXPERT_BACKTRACKS ? Grade.HARD : Grade.EXPERT;
+    }
+
+    // Repeatedly fills cells that have a single candidate (and, if hidden is set, symbols
+    // that fit in a single cell of a unit) and reports whether that completes the board
+    private static boolean solvesWithSingles(GridSpec spec, int[] givens, boolean hidden) {
+        int[] board = givens.clone();
+        long[] used = new long[spec.units.length];
+        int empty = 0;
+        for (int cell = 0; cell < board.length; cell++) {
+            if (board[cell] == 0) {
+                empty++;
+            } else {
+                for (int u : spec.cellUnits[cell]) {
+                    used[u] |= 1L << (board[cell] - 1);
+                }
+            }
+        }
+
+        boolean progress = true;
+        while (empty > 0 && progress) {
+            progress = false;
+            for (int cell = 0; cell < board.length; cell++) {
+                if (board[cell] != 0) {
+                    continue;
+                }
+                long mask = candidates(spec, used, cell);
+                if (Long.bitCount(mask) == 1) {
+                    place(spec, board, used, cell, Long.numberOfTrailingZeros(mask) + 1);
+                    empty--;
+                    progress = true;
+                }
+            }
+            if (!progress && hidden) {
+                for (int u = 0; u < spec.fullUnits && !progress; u++) {
+                    long once = 0;
+                    long twice = 0;
+                    for (int cell : spec.units[u]) {
+                        if (board[cell] == 0) {
+                            long mask = candidates(spec, used, cell);
+                            twice |= once & mask;
+                            once |= mask;
+                        }
+                    }
+                    long single = once & ~twice;
+                    if (single != 0) {
+                        long bit = single & -single;
+                        for (int cell : spec.units[u]) {
+                            if (board[cell] == 0 && (candidates(spec, used, cell) & bit) != 0) {
+                                place(spec, board, used, cell, Long.numberOfTrailingZeros(bit) + 1);
+                                empty--;
+                                progress = true;
+                                break;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return empty == 0;
+    }
+
+    private static long candidates(GridSpec spec, long[] used, int cell) {
+        long mask = spec.fullMask;
+        for (int u : spec.cellUnits[cell]) {
+            mask &= ~used[u];
+        }
+        return mask;
+    }
+
+    private static void place(GridSpec spec, int[] board, long[] used, int cell, int value) {
+        board[cell] = value;
+        for (int u : spec.cellUnits[cell]) {
+            used[u] |= 1L << (value - 1);
+        }
+    }
+}
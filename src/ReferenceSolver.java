@@ -0,0 +1,102 @@
+// The original 9x9 backtracking solver of the game, kept as a baseline for
+// benchmarks and cross-checks. It walks the cells row by row with one recursive call
+// per cell and tests every value with a full row/column/box scan.
+public class ReferenceSolver {
+    private int[] board;
+    private int solutionLimit;
+    private int solutionCount;
+    private int[] firstSolution;
+
+    // Solves the 81-cell board in place, returns false if there is no solution
+    public boolean solve(int[] cells) {
+        if (countSolutions(cells, 1) == 0) {
+            return false;
+        }
+        System.arraycopy(firstSolution, 0, cells, 0, cells.length);
+        return true;
+    }
+
+    public int countSolutions(int[] cells, int limit) {
+        board = cells.clone();
+        solutionLimit = limit;
+        solutionCount = 0;
+        firstSolution = null;
+        for (int cell = 0; cell < 81; cell++) {
+            int num = board[cell];
+            if (num != 0) {
+                board[cell] = 0;
+                boolean ok = isValid(cell / 9, cell % 9, num);
+                board[cell] = num;
+                if (!ok) {
+                    return 0;
+                }
+            }
+        }
+        solve(0, 0);
+        return solutionCount;
+    }
+
+    // Returns true once enough solutions have been found
+    private boolean solve(int row, int col) {
+        if (row == 9) {
+            solutionCount++;
+            if (firstSolution == null) {
+                firstSolution = board.clone();
+            }
+            return solutionCount >= solutionLimit;
+        }
+
+        if (col == 9) {
+            return solve(row + 1, 0);
+        }
+
+        if (board[row * 9 + col] != 0) {
+            return solve(row, col + 1);
+        }
+
+        for (int num = 1; num <= 9; num++) {
+            if (isValid(row, col, num)) {
+                board[row * 9 + col] = num;
+
+                if (solve(row, col + 1)) {
+                    board[row * 9 + col] = 0;
+                    return true;
+                }
+
+                board[row * 9 + col] = 0;
+            }
+        }
+
+        return false;
+    }
+
+    private boolean isValid(int row, int col, int num) {
+        // Check row
+        for (int c = 0; c < 9; c++) {
+            if (board[row * 9 + c] == num) {
+                return false;
+            }
+        }
+
+        // Check column
+        for (int r = 0; r < 9; r++) {
+            if (board[r * 9 + col] == num) {
+                return false;
+            }
+        }
+
+        // Check 3x3 box
+        int boxStartRow = row - row % 3;
+        int boxStartCol = col - col % 3;
+
+        for (int r = 0; r < 3; r++) {
+            for (int c = 0; c < 3; c++) {
+                if (board[(boxStartRow + r) * 9 + boxStartCol + c] == num) {
+                    return false;
+                }
+            }
+        }
+
+        return true;
+    }
+}
@@ -0,0 +1,167 @@
+// Bounded cache of solved and graded classic 9x9 puzzles, keyed by a 64-bit fingerprint of the
+// givens, so daily puzzles, shared seeds and re-imports are only solved once.
+// The table is set-associative: a fingerprint picks one set of WAYS slots and the least recently
+// used slot of a full set is evicted, which is LRU within each set. Sets are guarded by a fixed
+// number of striped locks. Entries live in flat primitive arrays and a hit copies the solution
+// into the caller's array, so lookups allocate nothing.
+// A solution is stored as 4-bit digits for the first eight rows (five longs). The ninth row is
+// rebuilt from the column sums. A hit is only returned if the stored solution agrees with every
+// given, so a fingerprint collision reads as a miss instead of a wrong answer.
+public final class SolutionCache {
+    public static final SolutionCache SHARED =
+            new SolutionCache("cache.solutions", Integer.getInteger("sudoku.cache.size", 1 << 16));
+
+    private static final int N = 81;
+    private static final int WAYS = 8;
+    private static final int WORDS = 5;  // 72 stored cells at 16 per long
+    private static final int STRIPES = 64;
+    private static final PuzzleValidator.Grade[] GRADES = PuzzleValidator.Grade.values();
+
+    private final int setMask;
+    private final long[] keys;      // 0 = empty slot
+    private final long[] lastUsed;  // per slot, from its stripe's clock
+    private final long[] packed;    // WORDS longs per slot
+    private final byte[] grades;
+    private final Object[] locks = new Object[STRIPES];
+    private final long[] clocks = new long[STRIPES];
+
+    private final Metrics.Counter hits;
+    private final Metrics.Counter misses;
+    private final Metrics.Counter evictions;
+
+    // Holds at least `capacity` entries (rounded up to a power of two); counters are published as
+    // <name>.hits, <name>.misses and <name>.evictions
+    public SolutionCache(String name, int capacity) {
+        int needed = Math.max(1, (capacity + WAYS - 1) / WAYS);
+        int sets = Integer.highestOneBit(needed);
+        if (sets < needed) {
+            sets <<= 1;
+        }
+        setMask = sets - 1;
+        keys = new long[sets * WAYS];
+        lastUsed = new long[sets * WAYS];
+        packed = new long[sets * WAYS * WORDS];
+        grades = new byte[sets * WAYS];
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new Object();
+        }
+        hits = Metrics.counter(name + ".hits");
+        misses = Metrics.counter(name + ".misses");
+        evictions = Metrics.counter(name + ".evictions");
+    }
+
+    // 64-bit hash of an 81-cell board; never 0
+    public static long fingerprint(int[] cells) {
+        if (cells.length != N) {
+            throw new IllegalArgumentException("Expected 81 cells but got " + cells.length);
+        }
+        long h = 0x9E3779B97F4A7C15L;
+        long word = 0;
+        for (int cell = 0; cell < N; cell++) {
+            word = (word << 4) | (cells[cell] & 0xF);
+            if ((cell & 15) == 15 || cell == N - 1) {
+                h = mix(h ^ word);
+                word = 0;
+            }
+        }
+        return h == 0 ? 1 : h;
+    }
+
+    // Copies the cached solution of `givens` into `solution` and returns its grade, or returns null on a miss
+    public PuzzleValidator.Grade get(long fingerprint, int[] givens, int[] solution) {
+        int set = (int) (fingerprint ^ (fingerprint >>> 32)) & setMask;
+        int stripe = set & (STRIPES - 1);
+        synchronized (locks[stripe]) {
+            for (int slot = set * WAYS; slot < set * WAYS + WAYS; slot++) {
+                if (keys[slot] == fingerprint) {
+                    if (!unpack(slot, givens, solution)) {
+                        break;
+                    }
+                    lastUsed[slot] = ++clocks[stripe];
+                    hits.increment();
+                    return GRADES[grades[slot]];
+                }
+            }
+        }
+        misses.increment();
+        return null;
+    }
+
+    public void put(long fingerprint, int[] solution, PuzzleValidator.Grade grade) {
+        int set = (int) (fingerprint ^ (fingerprint >>> 32)) & setMask;
+        int stripe = set & (STRIPES - 1);
+        synchronized (locks[stripe]) {
+            int victim = -1;
+            for (int slot = set * WAYS; slot < set * WAYS + WAYS; slot++) {
+                if (keys[slot] == fingerprint || keys[slot] == 0) {
+                    victim = slot;
+                    break;
+                }
+                if (victim < 0 || lastUsed[slot] < lastUsed[victim]) {
+                    victim = slot;
+                }
+            }
+            if (keys[victim] != 0 && keys[victim] != fingerprint) {
+                evictions.increment();
+            }
+            keys[victim] = fingerprint;
+            lastUsed[victim] = ++clocks[stripe];
+            grades[victim] = (byte) grade.ordinal();
+            pack(victim, solution);
+        }
+    }
+
+    public long hits() {
+        return hits.get();
+    }
+
+    public long misses() {
+        return misses.get();
+    }
+
+    public long evictions() {
+        return evictions.get();
+    }
+
+    private void pack(int slot, int[] solution) {
+        int base = slot * WORDS;
+        for (int w = 0; w < WORDS; w++) {
+            long word = 0;
+            for (int i = Math.min(16, 72 - w * 16) - 1; i >= 0; i--) {
+                word = (word << 4) | solution[w * 16 + i];
+            }
+            packed[base + w] = word;
+        }
+    }
+
+    // Fills in the solution and returns false if it contradicts a given
+    private boolean unpack(int slot, int[] givens, int[] solution) {
+        int base = slot * WORDS;
+        for (int cell = 0; cell < 72; cell++) {
+            solution[cell] = (int) (packed[base + (cell >>> 4)] >>> ((cell & 15) << 2)) & 0xF;
+        }
+        for (int col = 0; col < 9; col++) {
+            int sum = 0;
+            for (int cell = col; cell < 72; cell += 9) {
+                sum += solution[cell];
+            }
+            solution[72 + col] = 45 - sum;
+        }
+        for (int cell = 0; cell < N; cell++) {
+            if (givens[cell] != 0 && givens[cell] != solution[cell]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Murmur3 finalizer
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,70 @@
+import java.time.Duration;
+
+// Limits for one solver call: a maximum number of search nodes, a deadline and a cancellation token.
+// Budgets are immutable; the with... methods return a copy with one limit changed.
+public final class SolveBudget {
+    private static final SolveBudget UNLIMITED = new SolveBudget(Long.MAX_VALUE, Long.MAX_VALUE, null);
+    private static final long CHECK_MASK = 256 - 1; // deadline and token are read every 256 nodes
+
+    final long maxNodes;
+    final long timeoutNanos;          // Long.MAX_VALUE for no deadline
+    final CancellationToken token;    // null if the call cannot be cancelled
+
+    private SolveBudget(long maxNodes, long timeoutNanos, CancellationToken token) {
+        if (maxNodes <= 0 || timeoutNanos <= 0) {
+            throw new IllegalArgumentException("Budget limits must be positive");
+        }
+        this.maxNodes = maxNodes;
+        this.timeoutNanos = timeoutNanos;
+        this.token = token;
+    }
+
+    public static SolveBudget unlimited() {
+        return UNLIMITED;
+    }
+
+    public static SolveBudget ofNodes(long maxNodes) {
+        return UNLIMITED.withNodes(maxNodes);
+    }
+
+    public static SolveBudget ofTimeout(Duration timeout) {
+        return UNLIMITED.withTimeout(timeout);
+    }
+
+    public SolveBudget withNodes(long maxNodes) {
+        return new SolveBudget(maxNodes, timeoutNanos, token);
+    }
+
+    // The deadline is measured from the moment the solver starts, not from when the budget was built
+    public SolveBudget withTimeout(Duration timeout) {
+        return new SolveBudget(maxNodes, timeout.toNanos(), token);
+    }
+
+    public SolveBudget withToken(CancellationToken token) {
+        return new SolveBudget(maxNodes, timeoutNanos, token);
+    }
+
+    // The solvers call this on every search node with the count including that node. Returns null
+    // while the search may go on, else CANCELLED or BUDGET_EXCEEDED. The deadline is a
+    // System.nanoTime() value and only counts if hasDeadline.
+    static SolveResult.Status stopReason(long nodes, long maxNodes, long deadline, boolean hasDeadline,
+                                         CancellationToken token) {
+        if (nodes > maxNodes) {
+            return SolveResult.Status.BUDGET_EXCEEDED;
+        }
+        if ((nodes & CHECK_MASK) != 0 || (!hasDeadline && token == null)) {
+            return null;
+        }
+        if (token != null && token.isCancelled()) {
+            return SolveResult.Status.CANCELLED;
+        }
+        return hasDeadline && System.nanoTime() - deadline > 0 ? SolveResult.Status.BUDGET_EXCEEDED : null;
+    }
+
+    @Override
+    public String toString() {
+        return "SolveBudget[nodes=" + (maxNodes == Long.MAX_VALUE ? "unlimited" : maxNodes)
+                + ", timeout=" + (timeoutNanos == Long.MAX_VALUE ? "none" : Duration.ofNanos(timeoutNanos))
+                + ", cancellable=" + (token != null) + "]";
+    }
+}
@@ -0,0 +1,36 @@
+// Outcome of a budgeted solver call, together with the search statistics
+public final class SolveResult {
+    public enum Status {
+        SOLVED,          // exactly one solution
+        MULTIPLE,        // at least two solutions, solution holds the first one found
+        UNSOLVABLE,      // the givens clash or no completion exists
+        BUDGET_EXCEEDED, // node limit or deadline reached before the answer was known
+        CANCELLED        // the cancellation token was triggered
+    }
+
+    public final Status status;
+    public final int[] solution;  // null unless SOLVED or MULTIPLE, also when a stopped search had found one
+    public final long nodes;
+    public final long backtracks;
+    public final long propagations;
+    public final long elapsedNanos;
+
+    SolveResult(Status status, int[] solution, long nodes, long backtracks, long propagations, long elapsedNanos) {
+        this.status = status;
+        this.solution = solution;
+        this.nodes = nodes;
+        this.backtracks = backtracks;
+        this.propagations = propagations;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public boolean hasSolution() {
+        return solution != null;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s (nodes=%d, backtracks=%d, propagations=%d, %.2f ms)",
+                status, nodes, backtracks, propagations, elapsedNanos / 1e6);
+    }
+}
@@ -0,0 +1,134 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+// Hands the steps of a solve running on a worker thread to the UI thread.
+// The solver is the only producer and the UI the only consumer, so the ring needs no lock:
+// each side owns one index and publishes it with an ordered write (lazySet), which also
+// publishes the slots and the live board written before it.
+// The solver never waits for the UI. When the ring is full the step is dropped and the UI
+// resynchronises from the live board instead, so at full speed it shows a sample of the search.
+// The speed limit is kept by the solver against its own clock, not by the UI.
+public final class SolveTrace implements BitmaskSolver.StepListener {
+    public static final int UNLIMITED = Integer.MAX_VALUE; // steps per second
+
+    private static final int VALUE_BITS = 6; // values go up to 25
+    private static final int VALUE_MASK = (1 << VALUE_BITS) - 1;
+
+    private final int[] ring;           // cell << VALUE_BITS | value, value 0 = taken back
+    private final int mask;
+    private final int[] live;           // the solver's board, read by the UI only to resynchronise
+    private final CancellationToken token;
+    private final AtomicLong tail = new AtomicLong(); // next slot the solver writes
+    private final AtomicLong head = new AtomicLong(); // next slot the UI reads
+    private final AtomicLong placements = new AtomicLong();
+    private final AtomicLong removals = new AtomicLong();
+    private volatile boolean overflowed;
+    private volatile int stepsPerSecond;
+
+    // Solver thread only
+    private long cachedHead;
+    private int paceRate;
+    private long paceStart;
+    private long paceSteps;
+
+    public SolveTrace(int[] givens, int capacity, int stepsPerSecond, CancellationToken token) {
+        if (Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two: " + capacity);
+        }
+        this.ring = new int[capacity];
+        this.mask = capacity - 1;
+        this.live = givens.clone();
+        this.token = token;
+        this.stepsPerSecond = stepsPerSecond;
+    }
+
+    public void setStepsPerSecond(int stepsPerSecond) {
+        this.stepsPerSecond = stepsPerSecond;
+    }
+
+    public long placements() {
+        return placements.get();
+    }
+
+    public long removals() {
+        return removals.get();
+    }
+
+    @Override
+    public void placed(int cell, int value) {
+        live[cell] = value;
+        placements.lazySet(placements.get() + 1);
+        publish(cell << VALUE_BITS | value);
+        pace();
+    }
+
+    @Override
+    public void removed(int cell) {
+        live[cell] = 0;
+        removals.lazySet(removals.get() + 1);
+        publish(cell << VALUE_BITS);
+        pace();
+    }
+
+    private void publish(int step) {
+        long t = tail.get();
+        if (t - cachedHead > mask) {
+            cachedHead = head.get();
+            if (t - cachedHead > mask) {
+                overflowed = true;
+                tail.lazySet(t); // still publishes the live board
+                return;
+            }
+        }
+        ring[(int) t & mask] = step;
+        tail.lazySet(t + 1);
+    }
+
+    // Holds the solver to the step rate. A changed rate starts a new schedule, and a cancelled
+    // solve runs free so it reaches the solver's next token check right away.
+    private void pace() {
+        int rate = stepsPerSecond;
+        if (rate == UNLIMITED) {
+            return;
+        }
+        if (rate != paceRate) {
+            paceRate = rate;
+            paceStart = System.nanoTime();
+            paceSteps = 0;
+        }
+        long due = paceStart + ++paceSteps * 1_000_000_000L / rate;
+        long wait;
+        while ((wait = due - System.nanoTime()) > 0 && !token.isCancelled() && stepsPerSecond == rate) {
+            LockSupport.parkNanos(wait);
+        }
+    }
+
+    // UI thread: applies every pending step to board (the values on screen) and marks the
+    // changed cells in touched. Several steps on one cell collapse into its last value.
+    // Returns the number of steps taken from the ring.
+    public int drain(int[] board, boolean[] touched) {
+        boolean resync = overflowed;
+        if (resync) {
+            overflowed = false;
+        }
+        long h = head.get();
+        long t = tail.get();
+        for (long i = h; i < t; i++) {
+            int step = ring[(int) i & mask];
+            int cell = step >>> VALUE_BITS;
+            board[cell] = step & VALUE_MASK;
+            touched[cell] = true;
+        }
+        head.lazySet(t);
+        if (resync) {
+            for (int cell = 0; cell < board.length; cell++) {
+                int value = live[cell];
+                if (board[cell] != value) {
+                    board[cell] = value;
+                    touched[cell] = true;
+                }
+            }
+        }
+        return (int) (t - h);
+    }
+}
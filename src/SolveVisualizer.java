@@ -0,0 +1,92 @@
+import javax.swing.Timer;
+import java.util.function.Consumer;
+
+// Plays a solve step by step on the board. BitmaskSolver.trace runs on a worker thread and
+// feeds a SolveTrace; a Swing Timer drains it once per frame and redraws only the cells that
+// changed in that frame, so the event thread does a bounded amount of work whatever the speed.
+public final class SolveVisualizer {
+    private static final int FRAME_MILLIS = 16;
+    private static final int RING_CAPACITY = 1 << 16;
+
+    // Shows one cell on the board, value 0 = empty
+    public interface CellView {
+        void show(int cell, int value);
+    }
+
+    private final GridSpec spec;
+    private final int[] givens;
+    private final CellView view;
+    private final Consumer<SolveVisualizer> onFrame;
+    private final Consumer<SolveResult> onDone;
+    private final CancellationToken token = new CancellationToken();
+    private final int[] shown;
+    private final boolean[] touched;
+    private final Timer timer;
+    private SolveTrace trace;
+    private volatile SolveResult result;
+
+    // onFrame runs after every redrawn frame and onDone once the last step is shown, both on the event thread
+    public SolveVisualizer(GridSpec spec, int[] givens, CellView view,
+                           Consumer<SolveVisualizer> onFrame, Consumer<SolveResult> onDone) {
+        this.spec = spec;
+        this.givens = givens.clone();
+        this.view = view;
+        this.onFrame = onFrame;
+        this.onDone = onDone;
+        this.shown = givens.clone();
+        this.touched = new boolean[givens.length];
+        this.timer = new Timer(FRAME_MILLIS, e -> frame());
+        this.timer.setCoalesce(true); // a late frame replaces the missed ones instead of queueing them
+    }
+
+    public void start(int stepsPerSecond) {
+        trace = new SolveTrace(givens, RING_CAPACITY, stepsPerSecond, token);
+        SolveTrace steps = trace;
+        Thread worker = new Thread(() -> result = new BitmaskSolver(spec).trace(givens, token, steps),
+                "solve-visualizer");
+        worker.setDaemon(true);
+        worker.start();
+        timer.start();
+    }
+
+    public void setStepsPerSecond(int stepsPerSecond) {
+        if (trace != null) {
+            trace.setStepsPerSecond(stepsPerSecond);
+        }
+    }
+
+    // Cancels the solve and stops drawing; onDone is not called
+    public void stop() {
+        token.cancel();
+        timer.stop();
+    }
+
+    public boolean isRunning() {
+        return timer.isRunning();
+    }
+
+    public long placements() {
+        return trace == null ? 0 : trace.placements();
+    }
+
+    public long removals() {
+        return trace == null ? 0 : trace.removals();
+    }
+
+    private void frame() {
+        // Read before draining: once the result is set the worker has published its last step
+        SolveResult finished = result;
+        trace.drain(shown, touched);
+        for (int cell = 0; cell < touched.length; cell++) {
+            if (touched[cell]) {
+                touched[cell] = false;
+                view.show(cell, shown[cell]);
+            }
+        }
+        onFrame.accept(this);
+        if (finished != null) {
+            timer.stop();
+            onDone.accept(finished);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+import java.util.List;
+
+// Compares the three 9x9 solvers on the same puzzles:
+//   java SolverBenchmark [rounds]
+// The bitmask and iterative solvers are warmed up first so the JIT has compiled their search,
+// then every corpus is solved `rounds` times and the mean time per puzzle is printed, with the
+// solution counts summed over all calls (the same for every solver that gets them right).
+// The reference solver is slow enough (seconds on some hard puzzles) that one pass is plenty.
+public final class SolverBenchmark {
+    private static final int WARMUP_ROUNDS = 5;
+
+    private SolverBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+
+        List<int[]> hard = PuzzleCorpus.hard();
+        List<int[]> generated = PuzzleCorpus.generated(42, 200, 2);
+        List<int[]> antiBruteForce = List.of(PuzzleCorpus.cells(PuzzleCorpus.ANTI_BRUTE_FORCE));
+
+        ReferenceSolver reference = new ReferenceSolver();
+        BitmaskSolver recursive = new BitmaskSolver(GridSpec.classic(3));
+        IterativeSolver iterative = new IterativeSolver();
+
+        System.out.printf("%-28s %16s %16s %16s   %s%n", "corpus (puzzles)", "reference", "bitmask (rec.)", "iterative",
+                "checksums");
+        report("generated hard (" + generated.size() + ")", generated, rounds, reference, recursive, iterative);
+        report("known hard (" + hard.size() + ")", hard, rounds, reference, recursive, iterative);
+        // Row-by-row brute force needs minutes for this one, so the reference solver sits it out
+        report("anti brute force (1)", antiBruteForce, rounds, null, recursive, iterative);
+    }
+
+    private static void report(String name, List<int[]> corpus, int rounds, ReferenceSolver reference,
+                               BitmaskSolver recursive, IterativeSolver iterative) {
+        SolverTiming ref = reference == null ? null
+                : SolverTiming.mean(corpus, 0, 1, p -> reference.countSolutions(p, 2));
+        SolverTiming rec = SolverTiming.mean(corpus, WARMUP_ROUNDS, rounds, p -> recursive.countSolutions(p, 2));
+        SolverTiming it = SolverTiming.mean(corpus, WARMUP_ROUNDS, rounds, p -> iterative.countSolutions(p, 2));
+        System.out.printf("%-28s %16s %13.1f us %13.1f us   %s/%d/%d (iterative %.1fx vs bitmask)%n",
+                name, ref == null ? "skipped" : String.format("%.1f us", ref.nanos / 1000), rec.nanos / 1000,
+                it.nanos / 1000, ref == null ? "-" : Long.toString(ref.checksum), rec.checksum, it.checksum,
+                rec.nanos / it.nanos);
+    }
+}
@@ -0,0 +1,343 @@
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+
+// Differential and performance checks for the solvers and the generator:
+//   java SolverCheck [--seed N] [--fuzz N] [--baseline file] [--record] [--tolerance percent]
+//
+// Every engine (ReferenceSolver, BitmaskSolver, IterativeSolver) must agree on:
+// - the known hard corpus
+// - randomly dug and randomly corrupted boards
+// - puzzles from generateUnique
+// Agreement covers solution counts, solve results and budgeted statuses. Every grid from
+// generateSolution must be complete and valid for every variant and size, and BitmaskSolver
+// must solve and count the puzzles cut from it within GENERATED_NODES_PER_CELL nodes. Then the median
+// solve time of the bitmask and iterative solvers on the checked-in PuzzleCorpus.PINNED and HARD
+// boards is compared with a baseline file; --record writes that file instead. Timings depend on
+// the machine, so the baseline is not checked in: record it once on the machine that runs the
+// gate, and again after a deliberate change in speed. A missing baseline file or value fails the
+// check. Prints a line per check and exits with status 1 if anything failed, so a build script
+// can gate on it.
+// The reference solver only sees boards with at least REFERENCE_MIN_GIVENS givens: row-by-row
+// brute force can take minutes on sparse boards.
+public final class SolverCheck {
+    private static final int REFERENCE_MIN_GIVENS = 24;
+    private static final int MAX_REPORTED = 5;  // failing boards printed per check
+    private static final int GENERATED_NODES_PER_CELL = 20; // budget for each generated puzzle
+    private static final int WARMUP_ROUNDS = 5;  // untimed rounds before the performance medians
+    private static final int TIMED_ROUNDS = 10;  // each puzzle keeps its fastest of these
+
+    private final ReferenceSolver reference = new ReferenceSolver();
+    private final BitmaskSolver bitmask = new BitmaskSolver(GridSpec.classic(3));
+    private final IterativeSolver iterative = new IterativeSolver();
+    private final GridSpec classic = GridSpec.classic(3);
+    private int failedChecks;
+
+    public static void main(String[] args) throws IOException {
+        long seed = 1;
+        int fuzz = 2000;
+        Path baseline = Paths.get("solver-baseline.properties");
+        boolean record = false;
+        double tolerance = 25;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--seed":
+                    seed = Long.parseLong(args[++i]);
+                    break;
+                case "--fuzz":
+                    fuzz = Integer.parseInt(args[++i]);
+                    break;
+                case "--baseline":
+                    baseline = Paths.get(args[++i]);
+                    break;
+                case "--record":
+                    record = true;
+                    break;
+                case "--tolerance":
+                    tolerance = Double.parseDouble(args[++i]);
+                    break;
+                default:
+                    System.err.println("Unknown option " + args[i]);
+                    System.exit(2);
+            }
+        }
+
+        SolverCheck check = new SolverCheck();
+        long start = System.nanoTime();
+        check.knownHard();
+        check.fuzz(new Random(seed), fuzz);
+        check.uniquePuzzles(new Random(seed + 1), 100);
+        check.generatedSolutions(new Random(seed + 2));
+        check.performance(baseline, record, tolerance);
+        System.out.printf("%s in %.1f s%n", check.failedChecks == 0 ? "All checks passed" : check.failedChecks
+                + " checks FAILED", (System.nanoTime() - start) / 1e9);
+        System.exit(check.failedChecks == 0 ? 0 : 1);
+    }
+
+    private void knownHard() {
+        Failures failures = new Failures("known hard corpus");
+        for (String text : PuzzleCorpus.HARD) {
+            compare(PuzzleCorpus.cells(text), true, failures);
+        }
+        compare(PuzzleCorpus.cells(PuzzleCorpus.ANTI_BRUTE_FORCE), false, failures);
+        failures.report(PuzzleCorpus.HARD.length + 1);
+    }
+
+    // Boards dug from random solutions down to 17-60 givens (unique, several or many solutions),
+    // and a third of them corrupted by changing one given (mostly clashing or unsolvable)
+    private void fuzz(Random random, int count) {
+        Failures failures = new Failures("fuzzed boards");
+        SudokuGenerator generator = new SudokuGenerator(random);
+        for (int i = 0; i < count; i++) {
+            int[] board = generator.generateSolution(classic);
+            int givens = 17 + random.nextInt(44);
+            for (int removed = 0; removed < 81 - givens; ) {
+                int cell = random.nextInt(81);
+                if (board[cell] != 0) {
+                    board[cell] = 0;
+                    removed++;
+                }
+            }
+            if (i % 3 == 2) {
+                int cell;
+                do {
+                    cell = random.nextInt(81);
+                } while (board[cell] == 0);
+                board[cell] = 1 + (board[cell] + random.nextInt(8)) % 9;
+            }
+            compare(board, givens >= REFERENCE_MIN_GIVENS, failures);
+        }
+        failures.report(count);
+    }
+
+    private void uniquePuzzles(Random random, int count) {
+        Failures failures = new Failures("generateUnique puzzles");
+        SudokuGenerator generator = new SudokuGenerator(random);
+        for (int i = 0; i < count; i++) {
+            SudokuPuzzle puzzle = generator.generateUnique(i % 3);
+            int givens = 81 - puzzle.emptyCells();
+            if (!compare(puzzle.givens, givens >= REFERENCE_MIN_GIVENS, failures)) {
+                continue;
+            }
+            int[] solved = puzzle.givens.clone();
+            if (iterative.countSolutions(puzzle.givens, 2) != 1 || !iterative.solve(solved)
+                    || !Arrays.equals(solved, puzzle.solution)) {
+                failures.add(puzzle.givens, "not unique or solution differs from the generator's");
+            }
+        }
+        failures.report(count);
+    }
+
+    // Every variant at every size the game offers, plus the puzzles generate() cuts from them:
+    // solve() must complete them and a budgeted count must find at least one solution
+    private void generatedSolutions(Random random) {
+        SudokuGenerator generator = new SudokuGenerator(random);
+        for (GridSpec.Variant variant : GridSpec.Variant.values()) {
+            for (int box = GridSpec.MIN_BOX; box <= GridSpec.MAX_BOX; box++) {
+                int count = box <= 3 ? 50 : box == 4 ? 10 : 2;
+                Failures failures = new Failures(variant.label + " " + box * box + "x" + box * box + " generator");
+                for (int i = 0; i < count; i++) {
+                    SudokuPuzzle puzzle = generator.generate(variant, box, i % 3);
+                    GridSpec spec = puzzle.spec;
+                    boolean complete = true;
+                    for (int cell = 0; cell < spec.cellCount; cell++) {
+                        complete &= puzzle.solution[cell] != 0;
+                        if (puzzle.givens[cell] != 0 && puzzle.givens[cell] != puzzle.solution[cell]) {
+                            failures.add(puzzle.givens, "given differs from the solution at cell " + cell);
+                            break;
+                        }
+                    }
+                    if (!complete || !spec.isConsistent(puzzle.solution)) {
+                        failures.add(puzzle.solution, "solution is incomplete or breaks a rule");
+                        continue;
+                    }
+                    solveGenerated(puzzle, failures);
+                }
+                failures.report(count);
+            }
+        }
+    }
+
+    private void solveGenerated(SudokuPuzzle puzzle, Failures failures) {
+        GridSpec spec = puzzle.spec;
+        long budget = (long) spec.cellCount * GENERATED_NODES_PER_CELL;
+        BitmaskSolver solver = new BitmaskSolver(spec);
+        int[] solved = puzzle.givens.clone();
+        if (!solver.solve(solved, budget)) {
+            failures.add(puzzle.givens, solver.aborted()
+                    ? "solve() gave up after " + solver.nodes() + " nodes" : "solve() found no solution");
+            return;
+        }
+        if (!isCompletionOf(spec, solved, puzzle.givens)) {
+            failures.add(puzzle.givens, "solve() returned an invalid grid");
+            return;
+        }
+        SolveResult counted = solver.solve(puzzle.givens, SolveBudget.ofNodes(budget));
+        if (counted.status != SolveResult.Status.SOLVED && counted.status != SolveResult.Status.MULTIPLE) {
+            failures.add(puzzle.givens, "budgeted count returned " + counted);
+        } else if (!isCompletionOf(spec, counted.solution, puzzle.givens)) {
+            failures.add(puzzle.givens, "budgeted count returned an invalid grid");
+        }
+    }
+
+    private static boolean isCompletionOf(GridSpec spec, int[] solution, int[] givens) {
+        for (int cell = 0; cell < spec.cellCount; cell++) {
+            if (solution[cell] == 0 || (givens[cell] != 0 && givens[cell] != solution[cell])) {
+                return false;
+            }
+        }
+        return spec.isConsistent(solution);
+    }
+
+    // Runs every engine on the board and checks they agree. Returns false if they did not.
+    private boolean compare(int[] board, boolean withReference, Failures failures) {
+        int[] input = board.clone();
+        int expected = bitmask.countSolutions(board, 2);
+        if (iterative.countSolutions(board, 2) != expected) {
+            return failures.add(board, "iterative count " + iterative.countSolutions(board, 2)
+                    + " but bitmask count " + expected);
+        }
+        if (withReference && reference.countSolutions(board, 2) != expected) {
+            return failures.add(board, "reference count " + reference.countSolutions(board, 2)
+                    + " but bitmask count " + expected);
+        }
+        if (!Arrays.equals(board, input)) {
+            return failures.add(input, "countSolutions modified its input");
+        }
+
+        SolveResult fast = iterative.solve(board, SolveBudget.unlimited());
+        SolveResult slow = bitmask.solve(board, SolveBudget.unlimited());
+        if (fast.status != slow.status) {
+            return failures.add(board, "iterative status " + fast.status + " but bitmask status " + slow.status);
+        }
+        if (fast.status == SolveResult.Status.SOLVED && !Arrays.equals(fast.solution, slow.solution)) {
+            return failures.add(board, "solvers found different unique solutions");
+        }
+
+        int[] solved = board.clone();
+        boolean found = iterative.solve(solved);
+        if (found != (expected > 0)) {
+            return failures.add(board, "solve() returned " + found + " for " + expected + " solutions");
+        }
+        if (found && !isCompletionOf(classic, solved, board)) {
+            return failures.add(board, "solve() returned an invalid grid");
+        }
+        solved = board.clone();
+        if (found && (!bitmask.solve(solved) || !isCompletionOf(classic, solved, board))) {
+            return failures.add(board, "bitmask solve() returned an invalid grid");
+        }
+        if (withReference) {
+            solved = board.clone();
+            if (reference.solve(solved) != found || (found && !isCompletionOf(classic, solved, board))) {
+                return failures.add(board, "reference solve() disagrees");
+            }
+        }
+        return true;
+    }
+
+    // Median time per puzzle of each fast engine against the recorded baseline
+    private void performance(Path baseline, boolean record, double tolerance) throws IOException {
+        List<int[]> corpus = PuzzleCorpus.pinned();
+        corpus.addAll(PuzzleCorpus.hard());
+        SolverTiming bitmaskTiming = SolverTiming.median(corpus, WARMUP_ROUNDS, TIMED_ROUNDS,
+                p -> bitmask.countSolutions(p, 2));
+        SolverTiming iterativeTiming = SolverTiming.median(corpus, WARMUP_ROUNDS, TIMED_ROUNDS,
+                p -> iterative.countSolutions(p, 2));
+        // Both engines counted the solutions of the same boards the same number of times
+        if (bitmaskTiming.checksum != iterativeTiming.checksum) {
+            failedChecks++;
+            System.out.printf("FAIL  performance: solution count checksums differ, bitmask %d, iterative %d%n",
+                    bitmaskTiming.checksum, iterativeTiming.checksum);
+        }
+        long bitmaskMedian = (long) bitmaskTiming.nanos;
+        long iterativeMedian = (long) iterativeTiming.nanos;
+
+        Properties times = new Properties();
+        times.setProperty("bitmask.median.ns", Long.toString(bitmaskMedian));
+        times.setProperty("iterative.median.ns", Long.toString(iterativeMedian));
+        if (record) {
+            try (Writer out = Files.newBufferedWriter(baseline)) {
+                times.store(out, "Median solve time per puzzle on the pinned corpus, written by SolverCheck --record");
+            }
+            System.out.printf("ok    performance: recorded bitmask %d ns, iterative %d ns to %s%n",
+                    bitmaskMedian, iterativeMedian, baseline);
+            return;
+        }
+        if (!Files.exists(baseline)) {
+            // A gate that passes without anything to compare against would hide every regression
+            failedChecks++;
+            System.out.printf("FAIL  performance: bitmask %d ns, iterative %d ns (no baseline at %s, run with --record)%n",
+                    bitmaskMedian, iterativeMedian, baseline);
+            return;
+        }
+        Properties recorded = new Properties();
+        try (Reader in = Files.newBufferedReader(baseline)) {
+            recorded.load(in);
+        }
+        for (String engine : new String[] {"bitmask", "iterative"}) {
+            String key = engine + ".median.ns";
+            long now = Long.parseLong(times.getProperty(key));
+            long before = parseNanos(recorded.getProperty(key));
+            if (before <= 0) {
+                failedChecks++;
+                System.out.printf("FAIL  performance: %s median %d ns (no valid %s in %s, run with --record)%n",
+                        engine, now, key, baseline);
+                continue;
+            }
+            double change = 100.0 * (now - before) / before;
+            boolean ok = change <= tolerance;
+            if (!ok) {
+                failedChecks++;
+            }
+            System.out.printf("%-5s performance: %s median %d ns, baseline %d ns (%+.1f%%, limit +%.0f%%)%n",
+                    ok ? "ok" : "FAIL", engine, now, before, change, tolerance);
+        }
+    }
+
+    // A recorded median, or 0 if the value is missing or not a number
+    private static long parseNanos(String value) {
+        try {
+            return value == null ? 0 : Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    // Collects the failures of one check and prints its result line
+    private final class Failures {
+        private final String name;
+        private final List<String> examples = new ArrayList<>();
+        private int count;
+
+        Failures(String name) {
+            this.name = name;
+        }
+
+        boolean add(int[] board, String problem) {
+            if (count++ < MAX_REPORTED) {
+                examples.add(problem + ": " + (board.length == 81 ? PuzzleParser.format(board) : Arrays.toString(board)));
+            }
+            return false;
+        }
+
+        void report(int cases) {
+            if (count == 0) {
+                System.out.printf("ok    %s: %d cases%n", name, cases);
+                return;
+            }
+            failedChecks++;
+            System.out.printf("FAIL  %s: %d of %d cases%n", name, count, cases);
+            for (String example : examples) {
+                System.out.println("        " + example);
+            }
+        }
+    }
+}
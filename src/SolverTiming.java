@@ -0,0 +1,51 @@
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+// Timing loops shared by SolverBenchmark and SolverCheck. Every call's result goes into a
+// checksum that callers print or compare, so the JIT cannot drop a solver call as dead code.
+final class SolverTiming {
+    final double nanos;    // per puzzle
+    final long checksum;   // sum of the engine's results over every call, warmup included
+
+    private SolverTiming(double nanos, long checksum) {
+        this.nanos = nanos;
+        this.checksum = checksum;
+    }
+
+    // Mean time per puzzle over `rounds` passes after `warmup` untimed ones
+    static SolverTiming mean(List<int[]> corpus, int warmup, int rounds, ToIntFunction<int[]> engine) {
+        long checksum = 0;
+        long start = 0;
+        for (int round = 0; round < warmup + rounds; round++) {
+            if (round == warmup) {
+                start = System.nanoTime();
+            }
+            for (int[] puzzle : corpus) {
+                checksum += engine.applyAsInt(puzzle);
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        return new SolverTiming((double) elapsed / ((long) rounds * corpus.size()), checksum);
+    }
+
+    // Each puzzle is timed in every round after the warmup and its fastest round counts;
+    // the median over the corpus is then robust to both JIT noise and a few outliers
+    static SolverTiming median(List<int[]> corpus, int warmup, int rounds, ToIntFunction<int[]> engine) {
+        long[] best = new long[corpus.size()];
+        Arrays.fill(best, Long.MAX_VALUE);
+        long checksum = 0;
+        for (int round = 0; round < warmup + rounds; round++) {
+            for (int i = 0; i < corpus.size(); i++) {
+                long start = System.nanoTime();
+                checksum += engine.applyAsInt(corpus.get(i));
+                long elapsed = System.nanoTime() - start;
+                if (round >= warmup) {
+                    best[i] = Math.min(best[i], elapsed);
+                }
+            }
+        }
+        Arrays.sort(best);
+        return new SolverTiming(best[best.length / 2], checksum);
+    }
+}
@@ -0,0 +1,59 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// Custom Flight Recorder events for the generation and solve spans.
+// They cost next to nothing unless a recording with these events enabled is running,
+// e.g. java -XX:StartFlightRecording:filename=sudoku.jfr SudokuGame
+public final class SudokuEvents {
+    private SudokuEvents() {
+    }
+
+    // The first event instance pulls in the JFR machinery, which takes a few hundred milliseconds.
+    // Calling this on a background thread at startup keeps that cost off the first solve.
+    public static void preload() {
+        new GenerateEvent();
+        new SolveEvent();
+    }
+
+    @Name("sudoku.Generate")
+    @Label("Puzzle Generation")
+    @Category("Sudoku")
+    @Description("Generating a solved board and removing cells")
+    public static final class GenerateEvent extends Event {
+        @Label("Variant")
+        public String variant;
+
+        @Label("Board Size")
+        public int boardSize;
+
+        @Label("Difficulty")
+        public int difficulty;
+    }
+
+    @Name("sudoku.Solve")
+    @Label("Solve")
+    @Category("Sudoku")
+    @Description("One call into a solver")
+    public static final class SolveEvent extends Event {
+        @Label("Variant")
+        public String variant;
+
+        @Label("Board Size")
+        public int boardSize;
+
+        @Label("Solutions Found")
+        public int solutions;
+
+        @Label("Nodes Visited")
+        public long nodes;
+
+        @Label("Backtracks")
+        public long backtracks;
+
+        @Label("Propagation Steps")
+        public long propagations;
+    }
+}
@@ -1,14 +1,22 @@
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
+import javax.swing.filechooser.FileNameExtensionFilter;
 import java.awt.*;
+import java.awt.datatransfer.DataFlavor;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.io.BufferedInputStream;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.LocalDate;
 import java.util.ArrayList;
-import java.util.Random;
+import java.util.Arrays;
+import java.util.Hashtable;
+import java.util.List;
 import javax.sound.sampled.*;
 
 interface Panel {
@@ -22,14 +30,35 @@ public class SudokuGame extends JFrame implements Panel {
     private JPanel mainPanel;
     private CardLayout cardLayout;
     private JPanel gamePanel;
-    private JButton[][] cells = new JButton[9][9];
-    private int[][] solution = new int[9][9];
-    private int[][] puzzle = new int[9][9];
+    private JPanel boardPanel;
+    private GridSpec spec = GridSpec.classic(3);
+    private GridSpec.Variant variant = GridSpec.Variant.CLASSIC;
+    private int boxSize = 3;
+    private SudokuGenerator generator = new SudokuGenerator();
+    private DailyPuzzles daily = new DailyPuzzles(DailyPuzzles.DEFAULT_FILE);
+    private JButton[][] cells;
+    private int[][] solution;
+    private int[][] puzzle;
+    private int[] shade; // background colour index of each cell
     private JButton resetButton, newButton, solveButton, rulesButton;
     private JMenuBar menuBar;
     private JLabel mistakeLabel;
     private int totalCellsToFill = 0;
     private int mistakeCount = 0;
+    // The game being played, recorded in the player's statistics when it ends
+    private PlayerStats stats;
+    private long gameStart;
+    private long gameFingerprint;
+    private int gameDifficulty;
+    private int wrongEntries;
+    private int hintsUsed;
+    private boolean gameRecorded = true;
+    private int[] givens = new int[81];
+    // Step-by-step solve shown on the board, null when none has been started
+    private SolveVisualizer visualizer;
+    private JSlider speedSlider;
+    private JLabel traceLabel;
+    private static final int[] TRACE_SPEEDS = {1, 10, 100, 1_000, 10_000, 100_000, 1_000_000, SolveTrace.UNLIMITED};
     private Clip musicClip;
     private FloatControl volumeControl;
     private boolean isMuted = false;
@@ -69,6 +98,24 @@ public class SudokuGame extends JFrame implements Panel {
 
         add(mainPanel);
         cardLayout.show(mainPanel, "menu");
+
+        // Keep the coming month of daily puzzles ready so opening one is a lookup
+        daily.startPrecompute(30);
+
+        // -Dsudoku.player=<name> keeps separate statistics per player, the login name by default
+        String player = System.getProperty("sudoku.player", System.getProperty("user.name", "player"));
+        try {
+            stats = new PlayerStats(PlayerStats.DEFAULT_DIR, player.replaceAll("[^A-Za-z0-9._-]", "_"));
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    stats.close();
+                } catch (IOException e) {
+                    System.err.println("Error saving statistics: " + e.getMessage());
+                }
+            }, "stats-close"));
+        } catch (IOException e) {
+            System.err.println("Error opening statistics: " + e.getMessage());
+        }
     }
 
     private void createMenuBar() { // Create the Menu Bar at the top of all Panels
@@ -76,12 +123,24 @@ public class SudokuGame extends JFrame implements Panel {
 
         JMenu gameMenu = new JMenu("Game");
         JMenuItem newGameItem = new JMenuItem("New Game");
+        JMenuItem variantItem = new JMenuItem("New Variant Game...");
+        JMenuItem dailyItem = new JMenuItem("Puzzle of the Day");
+        JMenuItem importItem = new JMenuItem("Import Puzzle...");
+        JMenuItem statsItem = new JMenuItem("Statistics");
         JMenuItem exitItem = new JMenuItem("Exit");
 
         newGameItem.addActionListener(e -> showLevelSelection());
+        variantItem.addActionListener(e -> showVariantSelection());
+        dailyItem.addActionListener(e -> playDailyPuzzle());
+        importItem.addActionListener(e -> showImportDialog());
+        statsItem.addActionListener(e -> showStatistics());
         exitItem.addActionListener(e -> System.exit(0));
 
         gameMenu.add(newGameItem);
+        gameMenu.add(variantItem);
+        gameMenu.add(dailyItem);
+        gameMenu.add(importItem);
+        gameMenu.add(statsItem);
         gameMenu.addSeparator();
         gameMenu.add(exitItem);
 
@@ -284,6 +343,43 @@ public class SudokuGame extends JFrame implements Panel {
         }
     }
 
+    private void showVariantSelection() {
+        // Board size first, then the rule set; the difficulty is asked by showLevelSelection()
+        String[] sizes = {"4x4", "9x9", "16x16", "25x25"};
+        int sizeChoice = JOptionPane.showOptionDialog(this,
+                "Select board size:",
+                "New Variant Game",
+                JOptionPane.DEFAULT_OPTION,
+                JOptionPane.QUESTION_MESSAGE,
+                null,
+                sizes,
+                sizes[1]);
+        if (sizeChoice == JOptionPane.CLOSED_OPTION) {
+            return;
+        }
+
+        GridSpec.Variant[] variants = GridSpec.Variant.values();
+        String[] names = new String[variants.length];
+        for (int i = 0; i < variants.length; i++) {
+            names[i] = variants[i].label;
+        }
+        int variantChoice = JOptionPane.showOptionDialog(this,
+                "Select rules:",
+                "New Variant Game",
+                JOptionPane.DEFAULT_OPTION,
+                JOptionPane.QUESTION_MESSAGE,
+                null,
+                names,
+                names[0]);
+        if (variantChoice == JOptionPane.CLOSED_OPTION) {
+            return;
+        }
+
+        boxSize = sizeChoice + GridSpec.MIN_BOX;
+        variant = variants[variantChoice];
+        showLevelSelection();
+    }
+
     public JPanel createGamePanel() {
         // Create the main panel with BorderLayout
         JPanel panel = new JPanel(new BorderLayout(10, 10)) {
@@ -299,51 +395,27 @@ public class SudokuGame extends JFrame implements Panel {
         panel.setBorder(new EmptyBorder(10, 10, 10, 10));
 
         // Create the Sudoku board with a transparent background
-        JPanel boardPanel = new JPanel(new GridLayout(9, 9, 1, 1)) {
+        boardPanel = new JPanel(new GridLayout(spec.side, spec.side, 1, 1)) {
             @Override
             protected void paintComponent(Graphics g) {
                 super.paintComponent(g);
                 // Set transparent background to allow the main panel's background to show through
                 setOpaque(false);
             }
-        };
-        boardPanel.setBorder(BorderFactory.createLineBorder(Color.BLACK, 2));
-
-        // Create the buttons (Sudoku cells) with a transparent background
-        // In createGamePanel(), modify the cell creation code:
-        for (int row = 0; row < 9; row++) {
-            for (int col = 0; col < 9; col++) {
-                cells[row][col] = new JButton();
-                cells[row][col].setFont(new Font("Arial", Font.BOLD, 20));
-                cells[row][col].setOpaque(true);
-                cells[row][col].setBorderPainted(true);
-                cells[row][col].setBorder(BorderFactory.createLineBorder(Color.GRAY));
-
-                // Set solid background colors
-                if ((row / 3 + col / 3) % 2 == 0) {
-                    cells[row][col].setBackground(new Color(240, 240, 240));
-                } else {
-                    cells[row][col].setBackground(new Color(220, 220, 220));
-                }
-
-                final int r = row;
-                final int c = col;
-                cells[row][col].addMouseListener(new MouseAdapter() {
-                    public void mouseEntered(MouseEvent e) {
-                        cells[r][c].setBorder(BorderFactory.createLineBorder(Color.BLUE, 2));
-                    }
-                    public void mouseExited(MouseEvent e) {
-                        cells[r][c].setBorder(BorderFactory.createLineBorder(Color.GRAY));
-                    }
-                });
 
-                cells[row][col].addActionListener(e -> cellClicked(r, c));
-                boardPanel.add(cells[row][col]);
+            @Override
+            public void paint(Graphics g) {
+                // Time the whole board repaint, including all the cell buttons
+                long start = System.nanoTime();
+                super.paint(g);
+                Metrics.REPAINT_LATENCY.recordSince(start);
             }
-        }
+        };
+        boardPanel.setBorder(BorderFactory.createLineBorder(Color.BLACK, 2));
+        buildBoard();
 
         // Create button panel
-        JPanel buttonPanel = new JPanel(new GridLayout(1, 5, 10, 0));
+        JPanel buttonPanel = new JPanel(new GridLayout(1, 6, 10, 0));
 
         resetButton = new JButton("Reset Board");
         resetButton.addActionListener(e -> resetBoard());
@@ -360,15 +432,42 @@ public class SudokuGame extends JFrame implements Panel {
         JButton checkButton = new JButton("Check Result");
         checkButton.addActionListener(e -> checkResults());
 
+        JButton watchButton = new JButton("Watch Solve");
+        watchButton.addActionListener(e -> watchSolve());
+
         buttonPanel.add(checkButton);
         buttonPanel.add(resetButton);
         buttonPanel.add(newButton);
         buttonPanel.add(solveButton);
+        buttonPanel.add(watchButton);
         buttonPanel.add(rulesButton);
 
-        // Add mistake label below the button panel
-        JPanel southPanel = new JPanel(new BorderLayout());
-        southPanel.add(buttonPanel, BorderLayout.CENTER);
+        // Speed of Watch Solve in steps per second, from 1 up to as fast as the solver goes
+        speedSlider = new JSlider(0, TRACE_SPEEDS.length - 1, 2);
+        speedSlider.setMajorTickSpacing(1);
+        speedSlider.setSnapToTicks(true);
+        speedSlider.setPaintTicks(true);
+        Hashtable<Integer, JLabel> speedLabels = new Hashtable<>();
+        speedLabels.put(0, new JLabel("1/s"));
+        speedLabels.put(3, new JLabel("1k/s"));
+        speedLabels.put(6, new JLabel("1M/s"));
+        speedLabels.put(TRACE_SPEEDS.length - 1, new JLabel("Max"));
+        speedSlider.setLabelTable(speedLabels);
+        speedSlider.setPaintLabels(true);
+        speedSlider.addChangeListener(e -> {
+            if (visualizer != null) {
+                visualizer.setStepsPerSecond(TRACE_SPEEDS[speedSlider.getValue()]);
+            }
+        });
+        traceLabel = new JLabel(" ");
+        JPanel speedPanel = new JPanel(new FlowLayout(FlowLayout.CENTER, 10, 0));
+        speedPanel.add(new JLabel("Watch speed:"));
+        speedPanel.add(speedSlider);
+        speedPanel.add(traceLabel);
+
+        JPanel controlPanel = new JPanel(new BorderLayout());
+        controlPanel.add(buttonPanel, BorderLayout.CENTER);
+        controlPanel.add(speedPanel, BorderLayout.SOUTH);
 
         mistakeLabel = new JLabel("Mistakes: 0/0", SwingConstants.CENTER);
         mistakeLabel.setFont(new Font("Arial", Font.BOLD, 16));
@@ -378,18 +477,135 @@ public class SudokuGame extends JFrame implements Panel {
 
 
         panel.add(boardPanel, BorderLayout.CENTER);
-        panel.add(buttonPanel, BorderLayout.SOUTH);
+        panel.add(controlPanel, BorderLayout.SOUTH);
 
         return panel;
     }
 
+    // (Re)creates one button per cell for the current spec, called whenever the board size or rules change
+    private void buildBoard() {
+        int side = spec.side;
+        boardPanel.removeAll();
+        boardPanel.setLayout(new GridLayout(side, side, 1, 1));
+        cells = new JButton[side][side];
+        solution = new int[side][side];
+        puzzle = new int[side][side];
+        shade = shadeGroups();
+        int fontSize = Math.max(10, 20 * 9 / Math.max(9, side));
+
+        // Create the buttons (Sudoku cells) with a transparent background
+        for (int row = 0; row < side; row++) {
+            for (int col = 0; col < side; col++) {
+                cells[row][col] = new JButton();
+                cells[row][col].setFont(new Font("Arial", Font.BOLD, fontSize));
+                cells[row][col].setMargin(new Insets(0, 0, 0, 0));
+                cells[row][col].setOpaque(true);
+                cells[row][col].setBorderPainted(true);
+                cells[row][col].setBorder(BorderFactory.createLineBorder(Color.GRAY));
+
+                // Set solid background colors
+                cells[row][col].setBackground(cellBackground(row, col));
+
+                // Killer cages: show the target sum when hovering any cell of the cage
+                int cage = spec.cageOf(row, col);
+                if (cage >= 0) {
+                    cells[row][col].setToolTipText("Cage sum: " + spec.cageSum(cage));
+                }
+
+                final int r = row;
+                final int c = col;
+                cells[row][col].addMouseListener(new MouseAdapter() {
+                    public void mouseEntered(MouseEvent e) {
+                        cells[r][c].setBorder(BorderFactory.createLineBorder(Color.BLUE, 2));
+                    }
+                    public void mouseExited(MouseEvent e) {
+                        cells[r][c].setBorder(BorderFactory.createLineBorder(Color.GRAY));
+                    }
+                });
+
+                cells[row][col].addActionListener(e -> cellClicked(r, c));
+                boardPanel.add(cells[row][col]);
+            }
+        }
+        boardPanel.revalidate();
+        boardPanel.repaint();
+    }
+
+    // Gives every box, jigsaw region or Killer cage a colour index so that neighbouring groups differ
+    private int[] shadeGroups() {
+        int side = spec.side;
+        int[] group = new int[spec.cellCount];
+        for (int row = 0; row < side; row++) {
+            for (int col = 0; col < side; col++) {
+                group[row * side + col] = spec.cageCount() > 0 ? spec.cageOf(row, col) : spec.regionOf(row, col);
+            }
+        }
+        int groups = spec.cageCount() > 0 ? spec.cageCount() : side;
+        int[] color = new int[groups];
+        Arrays.fill(color, -1);
+        for (int cell = 0; cell < spec.cellCount; cell++) {
+            int g = group[cell];
+            if (color[g] != -1) {
+                continue;
+            }
+            // Greedy colouring: take the smallest colour not used by an adjacent group
+            int usedColors = 0;
+            for (int other = 0; other < spec.cellCount; other++) {
+                if (group[other] != g) {
+                    continue;
+                }
+                int r = other / side;
+                int c = other % side;
+                int[] next = {r > 0 ? other - side : -1, r < side - 1 ? other + side : -1,
+                        c > 0 ? other - 1 : -1, c < side - 1 ? other + 1 : -1};
+                for (int n : next) {
+                    if (n >= 0 && group[n] != g && color[group[n]] >= 0) {
+                        usedColors |= 1 << color[group[n]];
+                    }
+                }
+            }
+            color[g] = Integer.numberOfTrailingZeros(~usedColors);
+        }
+        int[] result = new int[spec.cellCount];
+        for (int cell = 0; cell < spec.cellCount; cell++) {
+            result[cell] = color[group[cell]];
+        }
+        return result;
+    }
+
+    private Color cellBackground(int row, int col) {
+        if (spec.diagonal && (row == col || row + col == spec.side - 1)) {
+            return new Color(215, 230, 245);
+        }
+        switch (shade[row * spec.side + col] % 4) {
+            case 0:
+                return new Color(240, 240, 240);
+            case 1:
+                return new Color(220, 220, 220);
+            case 2:
+                return new Color(230, 240, 225);
+            default:
+                return new Color(240, 230, 215);
+        }
+    }
+
+    // Text of a cell without a value: the first cell of a Killer cage shows the cage sum
+    private String emptyText(int row, int col) {
+        int cage = spec.cageOf(row, col);
+        if (cage >= 0 && spec.cageCells(cage)[0] == row * spec.side + col) {
+            return "<html><font size='2'>" + spec.cageSum(cage) + "</font></html>";
+        }
+        return "";
+    }
+
     private void checkResults() {
+        hintsUsed++; // Checking reveals the answers of the empty cells
         int correctCount = 0;
         int wrongCount = 0;
         emptyCells.clear();
 
-        for (int row = 0; row < 9; row++) {
-            for (int col = 0; col < 9; col++) {
+        for (int row = 0; row < spec.side; row++) {
+            for (int col = 0; col < spec.side; col++) {
                 // Reset cell appearance first
                 cells[row][col].setBorder(BorderFactory.createLineBorder(Color.GRAY));
 
@@ -432,8 +648,8 @@ public class SudokuGame extends JFrame implements Panel {
 
     private void countEmptyCells() {
         totalCellsToFill = 0;
-        for (int row = 0; row < 9; row++) {
-            for (int col = 0; col < 9; col++) {
+        for (int row = 0; row < spec.side; row++) {
+            for (int col = 0; col < spec.side; col++) {
                 if (puzzle[row][col] == 0) {
                     totalCellsToFill++;
                 }
@@ -445,18 +661,15 @@ public class SudokuGame extends JFrame implements Panel {
 
     private void cellClicked(int row, int col) {
         if (puzzle[row][col] != 0) return; // Don't allow editing of initial numbers
+        if (visualizer != null && visualizer.isRunning()) return; // The board belongs to Watch Solve
 
         // Set cell to appear selected
         cells[row][col].setBackground(new Color(200, 230, 255));
 
-        String input = JOptionPane.showInputDialog(this, "Enter number (1-9):");
+        String input = JOptionPane.showInputDialog(this, "Enter number (1-" + spec.side + "):");
 
         // Reset cell appearance
-        if ((row / 3 + col / 3) % 2 == 0) {
-            cells[row][col].setBackground(new Color(240, 240, 240));
-        } else {
-            cells[row][col].setBackground(new Color(220, 220, 220));
-        }
+        cells[row][col].setBackground(cellBackground(row, col));
 
         if (input == null || input.trim().isEmpty()) {
             return; // User cancelled or entered nothing
@@ -465,29 +678,33 @@ public class SudokuGame extends JFrame implements Panel {
         try {
             int num = Integer.parseInt(input.trim());
             // Change this part:
-            if (num >= 1 && num <= 9) {
+            if (num >= 1 && num <= spec.side) {
                 cells[row][col].setText(Integer.toString(num));
                 puzzle[row][col] = num;
+                if (num != solution[row][col]) {
+                    wrongEntries++;
+                }
                 cells[row][col].setForeground(Color.BLACK); // Changed to black
                 cells[row][col].setFont(cells[row][col].getFont().deriveFont(Font.BOLD)); // Make bold
 
                 if (isBoardComplete() && isSolutionCorrect()) {
+                    recordGame(true);
                     JOptionPane.showMessageDialog(this, "Congratulations! You solved the puzzle!");
                 }
 
             } else {
-                JOptionPane.showMessageDialog(this, "Please enter a number between 1-9",
+                JOptionPane.showMessageDialog(this, "Please enter a number between 1-" + spec.side,
                         "Invalid Input", JOptionPane.WARNING_MESSAGE);
             }
         } catch (NumberFormatException e) {
-            JOptionPane.showMessageDialog(this, "Please enter a valid number (1-9)",
+            JOptionPane.showMessageDialog(this, "Please enter a valid number (1-" + spec.side + ")",
                     "Invalid Input", JOptionPane.WARNING_MESSAGE);
         }
     }
 
     private boolean isBoardComplete() {
-        for (int row = 0; row < 9; row++) {
-            for (int col = 0; col < 9; col++) {
+        for (int row = 0; row < spec.side; row++) {
+            for (int col = 0; col < spec.side; col++) {
                 if (puzzle[row][col] == 0) {
                     return false;
                 }
@@ -497,8 +714,8 @@ public class SudokuGame extends JFrame implements Panel {
     }
 
     private boolean isSolutionCorrect() {
-        for (int row = 0; row < 9; row++) {
-            for (int col = 0; col < 9; col++) {
+        for (int row = 0; row < spec.side; row++) {
+            for (int col = 0; col < spec.side; col++) {
                 if (puzzle[row][col] != solution[row][col]) {
                     return false;
                 }
@@ -508,16 +725,17 @@ public class SudokuGame extends JFrame implements Panel {
     }
 
     private void resetBoard() {
+        stopVisualizer();
         mistakeCount = 0;
         updateMistakeLabel();
         emptyCells.clear();
 
-        for (int row = 0; row < 9; row++) {
-            for (int col = 0; col < 9; col++) {
+        for (int row = 0; row < spec.side; row++) {
+            for (int col = 0; col < spec.side; col++) {
                 cells[row][col].setBorder(BorderFactory.createLineBorder(Color.GRAY));
 
                 if (puzzle[row][col] == 0) {
-                    cells[row][col].setText("");
+                    cells[row][col].setText(emptyText(row, col));
                     cells[row][col].setForeground(Color.BLACK);
                     cells[row][col].setEnabled(true);
                 } else {
@@ -526,18 +744,16 @@ public class SudokuGame extends JFrame implements Panel {
                 }
 
                 // Reset background colors
-                if ((row / 3 + col / 3) % 2 == 0) {
-                    cells[row][col].setBackground(new Color(240, 240, 240));
-                } else {
-                    cells[row][col].setBackground(new Color(220, 220, 220));
-                }
+                cells[row][col].setBackground(cellBackground(row, col));
             }
         }
     }
 
     private void solveBoard() {
-        for (int row = 0; row < 9; row++) {
-            for (int col = 0; col < 9; col++) {
+        stopVisualizer();
+        recordGame(false); // Giving up still counts as a game played
+        for (int row = 0; row < spec.side; row++) {
+            for (int col = 0; col < spec.side; col++) {
                 cells[row][col].setText(Integer.toString(solution[row][col]));
                 cells[row][col].setForeground(Color.BLUE); // Keep solved answers blue
                 cells[row][col].setFont(cells[row][col].getFont().deriveFont(Font.BOLD));
@@ -546,14 +762,14 @@ public class SudokuGame extends JFrame implements Panel {
     }
 
     private void updateBoard() {
-        for (int row = 0; row < 9; row++) {
-            for (int col = 0; col < 9; col++) {
+        for (int row = 0; row < spec.side; row++) {
+            for (int col = 0; col < spec.side; col++) {
                 if (puzzle[row][col] != 0) {
                     cells[row][col].setText(Integer.toString(puzzle[row][col]));
                     cells[row][col].setForeground(Color.BLACK);
                     cells[row][col].setEnabled(false);
                 } else {
-                    cells[row][col].setText("");
+                    cells[row][col].setText(emptyText(row, col));
                     cells[row][col].setEnabled(true);
                 }
             }
@@ -787,148 +1003,284 @@ public class SudokuGame extends JFrame implements Panel {
     }
 
     private void generatePuzzle(int difficulty) {
-        // Generate a solved Sudoku board
-        generateSolution();
-
-        // Make a copy for the puzzle
-        for (int i = 0; i < 9; i++) {
-            System.arraycopy(solution[i], 0, puzzle[i], 0, 9);
-        }
-
-        // Remove numbers based on difficulty
-        int cellsToRemove;
-        switch (difficulty) {
-            case 0: // Easy
-                cellsToRemove = 40;
-                break;
-            case 1: // Medium
-                cellsToRemove = 50;
-                break;
-            case 2: // Hard
-                cellsToRemove = 60;
-                break;
-            default:
-                cellsToRemove = 45;
+        // Generate a solved board and remove numbers based on difficulty
+        SudokuPuzzle generated = generator.generate(variant, boxSize, difficulty);
+        loadPuzzle(generated.spec, generated.givens, generated.solution, difficulty);
+    }
+
+    // difficulty is a PuzzleValidator.Grade ordinal, which the Easy/Medium/Hard levels share
+    private void loadPuzzle(GridSpec newSpec, int[] givens, int[] solved, int difficulty) {
+        // Rebuild the grid only when the size or the rules changed
+        boolean sameLayout = newSpec.side == spec.side && newSpec.variant == GridSpec.Variant.CLASSIC
+                && spec.variant == GridSpec.Variant.CLASSIC;
+        spec = newSpec;
+        if (!sameLayout) {
+            buildBoard();
         }
 
-        Random random = new Random();
-        while (cellsToRemove > 0) {
-            int row = random.nextInt(9);
-            int col = random.nextInt(9);
+        spec.unflatten(solved, solution);
+        spec.unflatten(givens, puzzle);
+        countEmptyCells();
 
-            if (puzzle[row][col] != 0) {
-                puzzle[row][col] = 0;
-                cellsToRemove--;
+        stopVisualizer();
+        this.givens = givens.clone();
+        gameStart = System.nanoTime();
+        gameFingerprint = PlayerStats.fingerprint(givens);
+        gameDifficulty = difficulty;
+        wrongEntries = 0;
+        hintsUsed = 0;
+        gameRecorded = false;
+    }
+
+    // Solves the puzzle from its givens on a worker thread and shows every placement and
+    // backtrack on the board at the speed of the slider. puzzle[][] keeps the player's entries
+    // until the trace ends; see traceFinished() and stopVisualizer().
+    private void watchSolve() {
+        stopVisualizer();
+        recordGame(false); // Watching the solution counts as giving up
+        for (int row = 0; row < spec.side; row++) {
+            for (int col = 0; col < spec.side; col++) {
+                cells[row][col].setBorder(BorderFactory.createLineBorder(Color.GRAY));
+                showTraceCell(row * spec.side + col, givens[row * spec.side + col]);
             }
         }
-        countEmptyCells();
+        visualizer = new SolveVisualizer(spec, givens, this::showTraceCell,
+                v -> traceLabel.setText(String.format("Placed %,d  Taken back %,d", v.placements(), v.removals())),
+                this::traceFinished);
+        visualizer.start(TRACE_SPEEDS[speedSlider.getValue()]);
     }
 
-    private void generateSolution() {
-        // Reset the solution board
-        for (int i = 0; i < 9; i++) {
-            for (int j = 0; j < 9; j++) {
-                solution[i][j] = 0;
+    // A solved trace becomes the board: its values go into puzzle[][] and every cell is locked.
+    // Otherwise the board goes back to what it was before the trace.
+    private void traceFinished(SolveResult result) {
+        traceLabel.setText(String.format("%s: placed %,d  Taken back %,d",
+                traceOutcome(result.status), visualizer.placements(), visualizer.removals()));
+        if (result.status != SolveResult.Status.SOLVED) {
+            updateBoard();
+            return;
+        }
+        for (int row = 0; row < spec.side; row++) {
+            for (int col = 0; col < spec.side; col++) {
+                puzzle[row][col] = result.solution[row * spec.side + col];
+                cells[row][col].setEnabled(false);
             }
         }
-
-        // Fill the diagonal 3x3 boxes (they are independent)
-        fillDiagonalBoxes();
-
-        // Solve the remaining puzzle
-        solve(0, 0);
     }
 
-    private void fillDiagonalBoxes() {
-        for (int box = 0; box < 9; box += 3) {
-            fillBox(box, box);
+    private static String traceOutcome(SolveResult.Status status) {
+        switch (status) {
+            case SOLVED:
+                return "Solved";
+            case UNSOLVABLE:
+                return "No solution";
+            default:
+                return "Gave up"; // the trace's node limit ran out
         }
     }
 
-    private void fillBox(int row, int col) {
-        Random random = new Random();
-        for (int i = 0; i < 3; i++) {
-            for (int j = 0; j < 3; j++) {
-                int num;
-                do {
-                    num = random.nextInt(9) + 1;
-                } while (!isValidInBox(row, col, num));
-
-                solution[row + i][col + j] = num;
-            }
+    private void showTraceCell(int cell, int value) {
+        int row = cell / spec.side;
+        int col = cell % spec.side;
+        JButton button = cells[row][col];
+        if (givens[cell] != 0) {
+            button.setText(Integer.toString(givens[cell]));
+            button.setForeground(Color.BLACK);
+        } else {
+            button.setText(value == 0 ? emptyText(row, col) : Integer.toString(value));
+            button.setForeground(Color.BLUE);
         }
     }
 
-    private boolean isValidInBox(int boxStartRow, int boxStartCol, int num) {
-        for (int row = 0; row < 3; row++) {
-            for (int col = 0; col < 3; col++) {
-                if (solution[boxStartRow + row][boxStartCol + col] == num) {
-                    return false;
-                }
+    private void stopVisualizer() {
+        if (visualizer != null) {
+            if (visualizer.isRunning()) {
+                updateBoard(); // the trace's values are not the player's
             }
+            visualizer.stop();
+            visualizer = null;
+            traceLabel.setText(" ");
         }
-        return true;
     }
 
-    private boolean solve(int row, int col) {
-        if (row == 9) {
-            return true;
+    // Adds the current game to the player's statistics, once
+    private void recordGame(boolean solved) {
+        if (stats == null || gameRecorded) {
+            return;
         }
-
-        if (col == 9) {
-            return solve(row + 1, 0);
+        gameRecorded = true;
+        int millis = (int) Math.min((System.nanoTime() - gameStart) / 1_000_000, Integer.MAX_VALUE);
+        try {
+            stats.record(gameFingerprint, millis, wrongEntries, hintsUsed, gameDifficulty, spec.variant,
+                    spec.side, solved);
+        } catch (IOException e) {
+            System.err.println("Error saving statistics: " + e.getMessage());
         }
+    }
 
-        if (solution[row][col] != 0) {
-            return solve(row, col + 1);
+    private void showStatistics() {
+        if (stats == null) {
+            JOptionPane.showMessageDialog(this, "Statistics are not available.", "Statistics",
+                    JOptionPane.WARNING_MESSAGE);
+            return;
         }
+        PlayerStats.Summary summary = stats.summary();
+        PuzzleValidator.Grade[] grades = PuzzleValidator.Grade.values();
+        // One row per kind of game played: variant, board size and difficulty
+        List<Object[]> rows = new ArrayList<>();
+        for (int slot = 0; slot < PlayerStats.SLOTS; slot++) {
+            if (summary.games[slot] == 0) {
+                continue;
+            }
+            int side = PlayerStats.slotSide(slot);
+            rows.add(new Object[] {PlayerStats.slotVariant(slot).label + " " + side + "x" + side,
+                    grades[PlayerStats.slotDifficulty(slot)].label, summary.games[slot], summary.solved[slot],
+                    formatTime(summary.bestMillis[slot]), formatTime(summary.medianMillis(slot))});
+        }
+        JTable totals = new JTable(rows.toArray(new Object[0][]),
+                new String[] {"Board", "Difficulty", "Played", "Solved", "Best", "Median"});
+        totals.setEnabled(false);
 
-        for (int num = 1; num <= 9; num++) {
-            if (isValid(row, col, num)) {
-                solution[row][col] = num;
-
-                if (solve(row, col + 1)) {
-                    return true;
-                }
-
-                solution[row][col] = 0;
+        Object[][] recentRows;
+        try {
+            List<PlayerStats.Game> recent = stats.recent(10);
+            recentRows = new Object[recent.size()][];
+            for (int i = 0; i < recentRows.length; i++) {
+                PlayerStats.Game game = recent.get(i);
+                recentRows[i] = new Object[] {grades[game.difficulty].label,
+                        game.variant.label + " " + game.side + "x" + game.side,
+                        game.solved ? formatTime(game.solveMillis) : "gave up", game.mistakes, game.hints};
             }
+        } catch (IOException e) {
+            recentRows = new Object[0][];
+        }
+        JTable recentGames = new JTable(recentRows, new String[] {"Difficulty", "Board", "Time", "Mistakes", "Hints"});
+        recentGames.setEnabled(false);
+
+        JPanel panel = new JPanel(new BorderLayout(0, 8));
+        JPanel tables = new JPanel(new GridLayout(2, 1, 0, 8));
+        tables.add(new JScrollPane(totals));
+        tables.add(new JScrollPane(recentGames));
+        tables.setPreferredSize(new Dimension(460, 300));
+        panel.add(tables, BorderLayout.CENTER);
+        panel.add(new JLabel(String.format("Current streak: %d days    Best streak: %d days",
+                summary.currentStreak(LocalDate.now()), summary.bestStreak())), BorderLayout.SOUTH);
+        JOptionPane.showMessageDialog(this, panel, "Statistics", JOptionPane.PLAIN_MESSAGE);
+    }
+
+    private static String formatTime(int millis) {
+        if (millis == 0) {
+            return "-";
         }
+        int seconds = millis / 1000;
+        return String.format("%d:%02d", seconds / 60, seconds % 60);
+    }
 
-        return false;
+    private void playDailyPuzzle() {
+        DailyPuzzles.Entry entry = daily.today();
+        variant = GridSpec.Variant.CLASSIC;
+        boxSize = 3;
+        PuzzleValidator.Grade grade = entry.grade != null ? entry.grade : DailyPuzzles.targetGrade(entry.date);
+        loadPuzzle(entry.puzzle.spec, entry.puzzle.givens, entry.puzzle.solution, grade.ordinal());
+        resetBoard();
+        updateBoard();
+        cardLayout.show(mainPanel, "game");
+        JOptionPane.showMessageDialog(this, "Puzzle of the day for " + entry.date
+                        + (entry.grade == null ? "" : ", difficulty " + entry.grade.label),
+                "Puzzle of the Day", JOptionPane.INFORMATION_MESSAGE);
     }
 
-    private boolean isValid(int row, int col, int num) {
-        // Check row
-        for (int c = 0; c < 9; c++) {
-            if (solution[row][c] == num) {
-                return false;
+    private void showImportDialog() {
+        // Text area for pasting a puzzle, pre-filled from the clipboard when it holds text
+        JTextArea textArea = new JTextArea(10, 30);
+        textArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 14));
+        try {
+            Object clip = Toolkit.getDefaultToolkit().getSystemClipboard()
+                    .getData(DataFlavor.stringFlavor);
+            if (clip instanceof String) {
+                textArea.setText((String) clip);
             }
+        } catch (Exception e) {
+            // Nothing usable on the clipboard, start with an empty text area
         }
 
-        // Check column
-        for (int r = 0; r < 9; r++) {
-            if (solution[r][col] == num) {
-                return false;
+        JButton openButton = new JButton("Open File...");
+        openButton.addActionListener(e -> {
+            JFileChooser chooser = new JFileChooser();
+            chooser.setFileFilter(new FileNameExtensionFilter(
+                    "Sudoku files (*.sdk, *.ss, *.txt)", "sdk", "ss", "txt"));
+            if (chooser.showOpenDialog(this) == JFileChooser.APPROVE_OPTION) {
+                try {
+                    textArea.setText(new String(Files.readAllBytes(chooser.getSelectedFile().toPath()),
+                            StandardCharsets.UTF_8));
+                } catch (IOException ex) {
+                    JOptionPane.showMessageDialog(this, "Couldn't read file: " + ex.getMessage(),
+                            "Import Error", JOptionPane.ERROR_MESSAGE);
+                }
             }
+        });
+
+        JPanel panel = new JPanel(new BorderLayout(0, 5));
+        panel.add(new JLabel("Paste a 9x9 puzzle (81 characters, .sdk or .ss format):"), BorderLayout.NORTH);
+        panel.add(new JScrollPane(textArea), BorderLayout.CENTER);
+        panel.add(openButton, BorderLayout.SOUTH);
+
+        int choice = JOptionPane.showConfirmDialog(this, panel, "Import Puzzle",
+                JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE);
+        if (choice == JOptionPane.OK_OPTION) {
+            importPuzzle(textArea.getText());
         }
+    }
 
-        // Check 3x3 box
-        int boxStartRow = row - row % 3;
-        int boxStartCol = col - col % 3;
+    private void importPuzzle(String text) {
+        int[] givens;
+        try {
+            givens = PuzzleParser.parse(text);
+        } catch (IllegalArgumentException e) {
+            JOptionPane.showMessageDialog(this, e.getMessage(), "Import Error", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
 
-        for (int r = 0; r < 3; r++) {
-            for (int c = 0; c < 3; c++) {
-                if (solution[boxStartRow + r][boxStartCol + c] == num) {
-                    return false;
-                }
+        GridSpec classic = GridSpec.classic(3);
+        PuzzleValidator.Report report = PuzzleValidator.validate(classic, givens);
+        if (report.status != PuzzleValidator.Status.VALID) {
+            StringBuilder message = new StringBuilder(report.describe());
+            for (int cell : report.conflicts) {
+                message.append(String.format("%n  row %d, column %d", cell / 9 + 1, cell % 9 + 1));
             }
+            JOptionPane.showMessageDialog(this, message.toString(), "Import Error", JOptionPane.WARNING_MESSAGE);
+            return;
         }
 
-        return true;
+        variant = GridSpec.Variant.CLASSIC;
+        boxSize = 3;
+        loadPuzzle(classic, report.givens, report.solution,
+                report.grade != null ? report.grade.ordinal() : PuzzleValidator.Grade.MEDIUM.ordinal());
+        resetBoard();
+        updateBoard();
+        cardLayout.show(mainPanel, "game");
+        JOptionPane.showMessageDialog(this, report.describe(), "Import Puzzle", JOptionPane.INFORMATION_MESSAGE);
     }
 
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
+        // --server [port] [pool] runs the HTTP puzzle service instead of the window
+        if (args.length > 0 && args[0].equals("--server")) {
+            PuzzleServer.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+
+        // Engine metrics are always visible over JMX; -Dsudoku.metrics.log=<file> also dumps them
+        // to a file every sudoku.metrics.period seconds (60 by default)
+        Metrics.registerJmx();
+        String metricsLog = System.getProperty("sudoku.metrics.log");
+        if (metricsLog != null) {
+            Metrics.startLogDump(Paths.get(metricsLog),
+                    Long.getLong("sudoku.metrics.period", 60));
+        }
+
+        Thread preload = new Thread(SudokuEvents::preload, "jfr-preload");
+        preload.setDaemon(true);
+        preload.start();
+
         SwingUtilities.invokeLater(() -> {
             SudokuGame game = new SudokuGame();
             game.setVisible(true);
@@ -0,0 +1,370 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+// Builds solved boards and puzzles for every GridSpec variant and size.
+public class SudokuGenerator {
+    // Share of cells removed for Easy / Medium / Hard (40, 50 and 60 cells of a 9x9 board)
+    private static final double[] REMOVED_FRACTION = {40 / 81.0, 50 / 81.0, 60 / 81.0};
+    private static final double DEFAULT_FRACTION = 45 / 81.0;
+    // 25x25 boards past about 60% empty cells need searches too long to verify, so their levels
+    // are spaced below that instead of stopping Medium and Hard at the same point
+    private static final int LARGE_SIDE = 25;
+    private static final double[] LARGE_REMOVED_FRACTION = {0.40, 0.50, 0.60};
+
+    private static final int SEARCH_ATTEMPTS = 3;
+    private static final int MAX_RESTARTS = 50;
+    // Removal on large boards, see removeCells
+    private static final int VERIFY_FROM_SIDE = 16;
+    private static final int REMOVAL_BATCHES = 50;
+    private static final int VERIFY_NODES_PER_CELL = 1;
+    private static final int MAX_REJECTED_BATCHES = 1;
+
+    private final Random random;
+
+    public SudokuGenerator() {
+        this(new Random());
+    }
+
+    public SudokuGenerator(Random random) {
+        this.random = random;
+    }
+
+    // difficulty: 0 = Easy, 1 = Medium, 2 = Hard
+    public SudokuPuzzle generate(GridSpec.Variant variant, int box, int difficulty) {
+        SudokuEvents.GenerateEvent event = new SudokuEvents.GenerateEvent();
+        event.begin();
+        long start = System.nanoTime();
+
+        GridSpec spec;
+        int[] solution;
+        switch (variant) {
+            case DIAGONAL:
+                spec = GridSpec.diagonal(box);
+                solution = generateSolution(spec);
+                break;
+            case JIGSAW:
+                // Regions are reshaped around a finished board so the board stays a valid solution
+                solution = generateSolution(GridSpec.classic(box));
+                spec = GridSpec.jigsaw(box, randomRegions(box, solution));
+                break;
+            case KILLER:
+                // Cages are cut from a finished classic board so their sums are always consistent
+                solution = generateSolution(GridSpec.classic(box));
+                spec = randomCages(box, solution);
+                break;
+            case CLASSIC:
+            default:
+                spec = GridSpec.classic(box);
+                solution = generateSolution(spec);
+                break;
+        }
+        SudokuPuzzle puzzle = new SudokuPuzzle(spec, removeCells(spec, solution, difficulty), solution);
+
+        Metrics.GENERATE_LATENCY.recordSince(start);
+        event.end();
+        if (event.shouldCommit()) {
+            event.variant = variant.label;
+            event.boardSize = spec.side;
+            event.difficulty = difficulty;
+            event.commit();
+        }
+        return puzzle;
+    }
+
+    // Classic 9x9 puzzle with exactly one solution. Cells are removed in random order, and a
+    // removal is undone when it would allow a second solution. It stops at the difficulty's target
+    // or when no cell can go, which is usually 55 to 60 removed cells.
+    public SudokuPuzzle generateUnique(int difficulty) {
+        long start = System.nanoTime();
+        GridSpec spec = GridSpec.classic(3);
+        int[] solution = generateSolution(spec);
+        double fraction = difficulty >= 0 && difficulty < REMOVED_FRACTION.length
+                ? REMOVED_FRACTION[difficulty] : DEFAULT_FRACTION;
+        int cellsToRemove = (int) Math.round(spec.cellCount * fraction);
+        int[] puzzle = solution.clone();
+        IterativeSolver solver = new IterativeSolver();
+        for (int cell : permutation(spec.cellCount)) {
+            if (cellsToRemove == 0) {
+                break;
+            }
+            int value = puzzle[cell];
+            puzzle[cell] = 0;
+            if (solver.countSolutions(puzzle, 2) == 1) {
+                cellsToRemove--;
+            } else {
+                puzzle[cell] = value;
+            }
+        }
+        Metrics.GENERATE_LATENCY.recordSince(start);
+        return new SudokuPuzzle(spec, puzzle, solution);
+    }
+
+    // Returns a random complete board that satisfies every constraint of the spec
+    public int[] generateSolution(GridSpec spec) {
+        boolean plainBoxes = !spec.diagonal && spec.cageCount() == 0
+                && Arrays.equals(spec.region, GridSpec.boxRegions(spec.box));
+        for (int restart = 0; restart < MAX_RESTARTS; restart++) {
+            int[] solution = searchSolution(spec, SEARCH_ATTEMPTS);
+            if (solution != null) {
+                return solution;
+            }
+            if (plainBoxes) {
+                // Large classic boards can hit a long backtracking tail, the shuffled pattern never does
+                return shuffledPattern(spec);
+            }
+        }
+        throw new IllegalStateException("Could not generate a solution for " + spec);
+    }
+
+    private int[] searchSolution(GridSpec spec, int attempts) {
+        BitmaskSolver solver = new BitmaskSolver(spec);
+        long nodeLimit = spec.cellCount * 20L;
+        for (int i = 0; i < attempts; i++) {
+            int[] board = new int[spec.cellCount];
+            if (solver.fillRandom(board, random, nodeLimit)) {
+                return board;
+            }
+        }
+        return null;
+    }
+
+    // The base pattern (box * (r % box) + r / box + c) % side is a valid board, and so is any
+    // board obtained by permuting bands, rows inside a band, stacks, columns inside a stack and symbols
+    private int[] shuffledPattern(GridSpec spec) {
+        int box = spec.box;
+        int side = spec.side;
+        int[] rows = shuffledLines(box);
+        int[] cols = shuffledLines(box);
+        int[] symbols = permutation(side);
+
+        int[] board = new int[spec.cellCount];
+        for (int r = 0; r < side; r++) {
+            int pr = rows[r];
+            for (int c = 0; c < side; c++) {
+                int pc = cols[c];
+                board[r * side + c] = symbols[(box * (pr % box) + pr / box + pc) % side] + 1;
+            }
+        }
+        return board;
+    }
+
+    private int[] shuffledLines(int box) {
+        int[] bands = permutation(box);
+        int[] lines = new int[box * box];
+        for (int b = 0; b < box; b++) {
+            int[] inside = permutation(box);
+            for (int i = 0; i < box; i++) {
+                lines[b * box + i] = bands[b] * box + inside[i];
+            }
+        }
+        return lines;
+    }
+
+    private int[] permutation(int n) {
+        int[] p = new int[n];
+        for (int i = 0; i < n; i++) {
+            p[i] = i;
+        }
+        for (int i = n - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int tmp = p[i];
+            p[i] = p[j];
+            p[j] = tmp;
+        }
+        return p;
+    }
+
+    // Starts from the box layout and repeatedly swaps two cells holding the same value between
+    // neighbouring regions. Every region keeps one cell per symbol, so the solution stays valid,
+    // and a swap is only kept if both regions are still in one piece.
+    private int[] randomRegions(int box, int[] solution) {
+        int side = box * box;
+        int[] region = GridSpec.boxRegions(box);
+        int swaps = side * side;
+        for (int tries = 0, done = 0; done < swaps && tries < swaps * 50; tries++) {
+            int a = random.nextInt(side * side);
+            int b = randomNeighbour(a, side);
+            int ra = region[a];
+            int rb = region[b];
+            if (ra == rb) {
+                continue;
+            }
+            int c = -1;
+            for (int cell = 0; cell < region.length; cell++) {
+                if (region[cell] == rb && solution[cell] == solution[a]) {
+                    c = cell;
+                    break;
+                }
+            }
+            region[a] = rb;
+            region[c] = ra;
+            if (isConnected(region, side, ra) && isConnected(region, side, rb)) {
+                done++;
+            } else {
+                region[a] = ra;
+                region[c] = rb;
+            }
+        }
+        return region;
+    }
+
+    private int randomNeighbour(int cell, int side) {
+        int row = cell / side;
+        int col = cell % side;
+        switch (random.nextInt(4)) {
+            case 0:
+                return row > 0 ? cell - side : cell + side;
+            case 1:
+                return row < side - 1 ? cell + side : cell - side;
+            case 2:
+                return col > 0 ? cell - 1 : cell + 1;
+            default:
+                return col < side - 1 ? cell + 1 : cell - 1;
+        }
+    }
+
+    private static boolean isConnected(int[] region, int side, int id) {
+        int start = -1;
+        int size = 0;
+        for (int cell = 0; cell < region.length; cell++) {
+            if (region[cell] == id) {
+                if (start == -1) {
+                    start = cell;
+                }
+                size++;
+            }
+        }
+        boolean[] seen = new boolean[region.length];
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        queue.add(start);
+        seen[start] = true;
+        int reached = 0;
+        while (!queue.isEmpty()) {
+            int cell = queue.poll();
+            reached++;
+            int row = cell / side;
+            int col = cell % side;
+            int[] next = {
+                    row > 0 ? cell - side : -1,
+                    row < side - 1 ? cell + side : -1,
+                    col > 0 ? cell - 1 : -1,
+                    col < side - 1 ? cell + 1 : -1
+            };
+            for (int n : next) {
+                if (n >= 0 && !seen[n] && region[n] == id) {
+                    seen[n] = true;
+                    queue.add(n);
+                }
+            }
+        }
+        return reached == size;
+    }
+
+    // Splits the solved board into orthogonally connected cages of 1-5 distinct values
+    private GridSpec randomCages(int box, int[] solution) {
+        int side = box * box;
+        int cellCount = side * side;
+        int maxCage = Math.min(5, side);
+        int[] order = permutation(cellCount);
+        boolean[] taken = new boolean[cellCount];
+        List<int[]> cages = new ArrayList<>();
+        List<Integer> sums = new ArrayList<>();
+
+        for (int start : order) {
+            if (taken[start]) {
+                continue;
+            }
+            int target = 2 + random.nextInt(maxCage - 1);
+            List<Integer> cage = new ArrayList<>();
+            long values = 0;
+            cage.add(start);
+            taken[start] = true;
+            values |= 1L << (solution[start] - 1);
+
+            while (cage.size() < target) {
+                // Grow from a random cell of the cage into a free neighbour with a new value
+                int from = cage.get(random.nextInt(cage.size()));
+                int grown = -1;
+                for (int tries = 0; tries < 4 && grown == -1; tries++) {
+                    int n = randomNeighbour(from, side);
+                    if (!taken[n] && (values & (1L << (solution[n] - 1))) == 0) {
+                        grown = n;
+                    }
+                }
+                if (grown == -1) {
+                    break;
+                }
+                cage.add(grown);
+                taken[grown] = true;
+                values |= 1L << (solution[grown] - 1);
+            }
+
+            int sum = 0;
+            int[] cells = new int[cage.size()];
+            for (int i = 0; i < cells.length; i++) {
+                cells[i] = cage.get(i);
+                sum += solution[cells[i]];
+            }
+            Arrays.sort(cells);
+            cages.add(cells);
+            sums.add(sum);
+        }
+        return GridSpec.killer(box, cages.toArray(new int[0][]),
+                sums.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    // Cells are removed at random. From 16x16 up, a board with many empty cells can need a search
+    // far longer than anyone would wait for, so the cells go in batches and every batch must leave
+    // a board that BitmaskSolver.solve(int[]) finishes within VERIFY_NODES_PER_CELL nodes per cell.
+    // A rejected batch is put back, and past MAX_REJECTED_BATCHES of them the other cells are
+    // tried one at a time: a cell goes if the solver's first node fills it back in, which keeps
+    // the verified search as it was, so the board still solves within the same nodes.
+    private int[] removeCells(GridSpec spec, int[] solution, int difficulty) {
+        double[] fractions = spec.side >= LARGE_SIDE ? LARGE_REMOVED_FRACTION : REMOVED_FRACTION;
+        double fraction = difficulty >= 0 && difficulty < fractions.length ? fractions[difficulty] : DEFAULT_FRACTION;
+        int cellsToRemove = (int) Math.round(spec.cellCount * fraction);
+        int[] puzzle = solution.clone();
+        boolean verify = spec.side >= VERIFY_FROM_SIDE;
+        BitmaskSolver solver = verify ? new BitmaskSolver(spec) : null;
+        int[] batch = new int[verify ? Math.max(1, spec.cellCount / REMOVAL_BATCHES) : cellsToRemove];
+        int rejected = 0;
+        while (cellsToRemove > 0 && rejected < MAX_REJECTED_BATCHES) {
+            int n = 0;
+            while (n < batch.length && n < cellsToRemove) {
+                int cell = random.nextInt(spec.cellCount);
+                if (puzzle[cell] != 0) {
+                    puzzle[cell] = 0;
+                    batch[n++] = cell;
+                }
+            }
+            if (!verify || solver.solve(puzzle.clone(), (long) spec.cellCount * VERIFY_NODES_PER_CELL)) {
+                cellsToRemove -= n;
+            } else {
+                for (int i = 0; i < n; i++) {
+                    puzzle[batch[i]] = solution[batch[i]];
+                }
+                rejected++;
+            }
+        }
+        if (verify && cellsToRemove > 0) {
+            for (int cell : permutation(spec.cellCount)) {
+                if (cellsToRemove == 0) {
+                    break;
+                }
+                if (puzzle[cell] == 0) {
+                    continue;
+                }
+                puzzle[cell] = 0;
+                if (solver.propagates(puzzle, cell)) {
+                    cellsToRemove--;
+                } else {
+                    puzzle[cell] = solution[cell];
+                }
+            }
+        }
+        return puzzle;
+    }
+}
@@ -0,0 +1,25 @@
+// A generated board: the rules it was built for, the givens (0 = empty) and its solution
+public final class SudokuPuzzle {
+    public final GridSpec spec;
+    public final int[] givens;
+    public final int[] solution;
+
+    public SudokuPuzzle(GridSpec spec, int[] givens, int[] solution) {
+        if (givens.length != spec.cellCount || solution.length != spec.cellCount) {
+            throw new IllegalArgumentException("Puzzle does not match a " + spec + " board");
+        }
+        this.spec = spec;
+        this.givens = givens;
+        this.solution = solution;
+    }
+
+    public int emptyCells() {
+        int count = 0;
+        for (int v : givens) {
+            if (v == 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+}